@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The Catalog class stores every Course section offered in a term. Each section is
+ * identified by its department, code and section number, so Courses can be looked up
+ * and added to a Planner without entering all of their information by hand. The names
+ * and instructors of the Catalog can be searched through a SearchIndex, which is built on
+ * first use and kept up to date as sections are added and removed. Scans by department and
+ * code run over a columnar CourseStore copy of the Catalog, and range queries ordered by code
+ * go through a RangeIndex; both are built on first use and discarded when the Catalog changes.
+ *
+ * @author Zhen Wei Liao
+ */
+public class Catalog {
+    private final ArrayList<Course> courses = new ArrayList<>();
+    private final HashMap<SectionKey, Integer> sections = new HashMap<>();
+    private SearchIndex searchIndex;
+    private CourseStore store;
+    private RangeIndex rangeIndex;
+
+    /**
+     * Key identifying a section by its department, code and section number.
+     */
+    private static final class SectionKey {
+        private final String department;
+        private final int code;
+        private final byte section;
+
+        SectionKey(String department, int code, byte section) {
+            this.department = department;
+            this.code = code;
+            this.section = section;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(obj == this) return true;
+            if(!(obj instanceof SectionKey)) return false;
+
+            SectionKey key = (SectionKey) obj;
+            return key.code == code && key.section == section && Objects.equals(key.department, department);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Objects.hashCode(department) * 31 + code) * 31 + section;
+        }
+    }
+
+    /**
+     * Constructor creates an empty Catalog.
+     */
+    public Catalog() {
+    }
+
+    /**
+     * Adds a Course section to the Catalog. A section that is already in the Catalog is
+     * replaced by the new Course.
+     *
+     * @param course
+     *      The Course section being added.
+     *
+     * @return
+     *      True if the section is new to the Catalog, false if it replaced an existing one.
+     */
+    public boolean add(Course course) {
+        SectionKey key = new SectionKey(course.getDepartment(), course.getCode(), course.getSection());
+        Integer index = sections.get(key);
+        if(index != null) {
+            Course replaced = courses.set(index, course);
+            store = null;
+            rangeIndex = null;
+            if(searchIndex != null) {
+                searchIndex.remove(replaced);
+                searchIndex.add(course);
+            }
+            return false;
+        }
+
+        sections.put(key, courses.size());
+        courses.add(course);
+        store = null;
+        rangeIndex = null;
+        if(searchIndex != null)
+            searchIndex.add(course);
+        return true;
+    }
+
+    /**
+     * Removes the Course section with the given department, code and section number. The
+     * last section of the Catalog takes the place of the removed one.
+     *
+     * @param department
+     *      The department of the section.
+     *
+     * @param code
+     *      The code of the section.
+     *
+     * @param section
+     *      The section number.
+     *
+     * @return
+     *      The removed Course, null if the Catalog does not offer the section.
+     */
+    public Course remove(String department, int code, byte section) {
+        Integer index = sections.remove(new SectionKey(department, code, section));
+        if(index == null)
+            return null;
+
+        store = null;
+        rangeIndex = null;
+        Course last = courses.remove(courses.size() - 1);
+        Course removed = last;
+        if(index < courses.size()) {
+            removed = courses.set(index, last);
+            sections.put(new SectionKey(last.getDepartment(), last.getCode(), last.getSection()), index);
+        }
+
+        if(searchIndex != null)
+            searchIndex.remove(removed);
+        return removed;
+    }
+
+    /**
+     * Returns the Course section with the given department, code and section number.
+     *
+     * @param department
+     *      The department of the section.
+     *
+     * @param code
+     *      The code of the section.
+     *
+     * @param section
+     *      The section number.
+     *
+     * @return
+     *      The matching Course, null if the Catalog does not offer the section.
+     */
+    public Course find(String department, int code, byte section) {
+        Integer index = sections.get(new SectionKey(department, code, section));
+        return index == null ? null : courses.get(index);
+    }
+
+    /**
+     * Returns the Course sections of a department whose code is within a range.
+     *
+     * @param department
+     *      The department of the sections.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      The matching Courses in Catalog order, the same objects the Catalog holds.
+     */
+    public List<Course> find(String department, int minCode, int maxCode) {
+        if(store == null)
+            store = CourseStore.of(courses);
+
+        int[] rows = store.scan(department, minCode, maxCode);
+        ArrayList<Course> matches = new ArrayList<>(rows.length);
+        for(int row : rows)
+            matches.add(courses.get(row));
+        return matches;
+    }
+
+    /**
+     * Returns the Course sections of a department whose code is within a range, ordered by
+     * code and section. The sections are found through a RangeIndex in time proportional to
+     * the logarithm of size() plus the number of matches.
+     *
+     * @param department
+     *      The department of the sections.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      The matching Courses ordered by code, then section. Empty if minCode is greater
+     *      than maxCode.
+     */
+    public List<Course> range(String department, int minCode, int maxCode) {
+        if(rangeIndex == null)
+            rangeIndex = RangeIndex.of(courses.toArray(new Course[0]), courses.size());
+
+        int[] rows = rangeIndex.range(department, minCode, maxCode);
+        ArrayList<Course> matches = new ArrayList<>(rows.length);
+        for(int row : rows)
+            matches.add(courses.get(row));
+        return matches;
+    }
+
+    /**
+     * Returns the number of Course sections in the Catalog.
+     *
+     * @return
+     *      The number of sections.
+     */
+    public int size() {
+        return courses.size();
+    }
+
+    /**
+     * Returns the search index of the names and instructors in the Catalog, building it on
+     * first use.
+     *
+     * @return
+     *      The SearchIndex of the Catalog.
+     */
+    public SearchIndex searchIndex() {
+        if(searchIndex == null) {
+            searchIndex = new SearchIndex();
+            for(Course course : courses)
+                searchIndex.add(course);
+        }
+        return searchIndex;
+    }
+
+    /**
+     * Returns every Course section in the order they were added, except that removing a
+     * section moves the last one in its place.
+     *
+     * @return
+     *      A read-only view of the Courses in the Catalog.
+     */
+    public List<Course> courses() {
+        return Collections.unmodifiableList(courses);
+    }
+}
@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * The CatalogImporter class reads a term catalog from CSV or TSV text into a Catalog.
+ * Each line describes one section with the columns department, code, section, name and
+ * instructor, in that order, optionally followed by the meeting times in the format read by
+ * MeetingTime.parse(). A first line whose code column is not a number is treated as a
+ * header. Fields may be enclosed in double quotes, with "" standing for a quote, but may not
+ * span lines. The delimiter is a tab if the first line contains one and a comma otherwise.
+ * <p>
+ * Lines are parsed straight from bytes: numbers are decoded without creating Strings, and
+ * departments and instructors are compared against a table of the pooled Strings already
+ * seen, so their String is only created the first time a distinct value is seen. Names and
+ * meeting times, which rarely repeat, are decoded directly and are not pooled. Files are
+ * split at line boundaries and parsed in parallel; streams are parsed line by line through
+ * a fixed-size buffer.
+ *
+ * @author Zhen Wei Liao
+ */
+public class CatalogImporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAX_SPLIT = 1L << 28;
+    private static final int COLUMNS = 6;
+    private static final int REQUIRED_COLUMNS = 5;
+
+    private int imported, skipped;
+
+    /**
+     * Constructor creates a CatalogImporter.
+     */
+    public CatalogImporter() {
+    }
+
+    /**
+     * Accessor. Returns the number of lines imported as Courses so far.
+     *
+     * @return
+     *      The number of imported Courses.
+     */
+    public int getImported() {
+        return imported;
+    }
+
+    /**
+     * Accessor. Returns the number of non-blank lines skipped so far because they were
+     * headers or could not be parsed.
+     *
+     * @return
+     *      The number of skipped lines.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Imports a catalog file, parsing it on the given number of threads.
+     *
+     * @param path
+     *      The CSV or TSV file to import.
+     *
+     * @param catalog
+     *      The Catalog that receives the Courses.
+     *
+     * @param threads
+     *      The number of threads parsing the file.
+     *
+     * @return
+     *      The number of Courses imported from the file.
+     *
+     * @throws IOException
+     *      when the file cannot be read.
+     */
+    public int importFile(Path path, Catalog catalog, int threads) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size == 0)
+                return 0;
+
+            byte delimiter = detectDelimiter(channel);
+            int splits = (int) Math.max(threads, size / MAX_SPLIT + 1);
+            long[] bounds = new long[splits + 1];
+            bounds[splits] = size;
+            for(int i = 1; i < splits; i++)
+                bounds[i] = Math.max(bounds[i - 1], lineStart(channel, size * i / splits));
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+            try {
+                List<Future<Chunk>> parts = new ArrayList<>();
+                for(int i = 0; i < splits; i++) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                    boolean first = i == 0;
+                    parts.add(executor.submit(() -> parse(buffer, delimiter, first)));
+                }
+
+                int count = 0;
+                for(Future<Chunk> part : parts) {
+                    Chunk chunk = part.get();
+                    for(Course course : chunk.courses)
+                        catalog.add(course);
+                    count += chunk.courses.size();
+                    skipped += chunk.skipped;
+                }
+                imported += count;
+                return count;
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Error: Import interrupted.", e);
+            } catch(ExecutionException e) {
+                throw new IOException("Error: Unable to import catalog.", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Imports a catalog from a stream, parsing it line by line with bounded memory.
+     *
+     * @param in
+     *      The CSV or TSV text to import.
+     *
+     * @param catalog
+     *      The Catalog that receives the Courses.
+     *
+     * @return
+     *      The number of Courses imported from the stream.
+     *
+     * @throws IOException
+     *      when the stream cannot be read.
+     */
+    public int importStream(InputStream in, Catalog catalog) throws IOException {
+        LineParser parser = new LineParser();
+        parser.header = true;
+
+        int[] count = new int[1];
+        parseLines(in, parser, course -> {
+            catalog.add(course);
+            count[0]++;
+        });
+
+        imported += count[0];
+        skipped += parser.skipped;
+        return count[0];
+    }
+
+    /**
+     * Parses every line of a stream through a fixed-size buffer. If the parser has no
+     * delimiter yet, it is detected from the first line.
+     */
+    private static void parseLines(InputStream in, LineParser parser, Consumer<Course> sink) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start = 0, end = 0;
+
+        while(true) {
+            int newline = indexOf(buffer, start, end, (byte) '\n');
+            if(newline < 0) {
+                if(start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+                if(end == buffer.length)
+                    buffer = Arrays.copyOf(buffer, buffer.length << 1);
+
+                int read = in.read(buffer, end, buffer.length - end);
+                if(read > 0) {
+                    end += read;
+                    continue;
+                }
+                if(start == end)
+                    break;
+                newline = end;
+            }
+
+            if(parser.delimiter == 0)
+                parser.delimiter = indexOf(buffer, start, newline, (byte) '\t') >= 0 ? (byte) '\t' : (byte) ',';
+            Course course = parser.parse(buffer, start, newline);
+            if(course != null)
+                sink.accept(course);
+            start = Math.min(newline + 1, end);
+        }
+    }
+
+    /**
+     * Courses parsed from one part of a file.
+     */
+    private static final class Chunk {
+        private final ArrayList<Course> courses = new ArrayList<>();
+        private int skipped;
+    }
+
+    /**
+     * Parses every line of a mapped part of a file.
+     */
+    private Chunk parse(ByteBuffer buffer, byte delimiter, boolean first) throws IOException {
+        LineParser parser = new LineParser();
+        parser.delimiter = delimiter;
+        parser.header = first;
+
+        Chunk chunk = new Chunk();
+        parseLines(new InputStream() {
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                if(!buffer.hasRemaining())
+                    return -1;
+                length = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, length);
+                return length;
+            }
+        }, parser, chunk.courses::add);
+        chunk.skipped = parser.skipped;
+        return chunk;
+    }
+
+    /**
+     * Returns the tab character if the first line of the file contains one, a comma otherwise.
+     */
+    private static byte detectDelimiter(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, channel.size()));
+        channel.read(head, 0);
+        for(int i = 0; i < head.position(); i++) {
+            if(head.get(i) == '\t') return '\t';
+            if(head.get(i) == '\n') break;
+        }
+        return ',';
+    }
+
+    /**
+     * Returns the position of the first line that starts at or after the given position.
+     */
+    private static long lineStart(FileChannel channel, long position) throws IOException {
+        if(position == 0)
+            return 0;
+
+        ByteBuffer block = ByteBuffer.allocate(4096);
+        for(long offset = position - 1; offset < channel.size(); offset += block.limit()) {
+            block.clear();
+            if(channel.read(block, offset) <= 0)
+                break;
+            block.flip();
+            for(int i = 0; i < block.limit(); i++)
+                if(block.get(i) == '\n')
+                    return offset + i + 1;
+        }
+        return channel.size();
+    }
+
+    /**
+     * Returns the index of the first occurrence of a byte in a range, -1 if there is none.
+     */
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for(int i = from; i < to; i++)
+            if(bytes[i] == b)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Parses single lines into Courses. Each thread uses its own LineParser.
+     */
+    private final class LineParser {
+        private final int[] starts = new int[COLUMNS], ends = new int[COLUMNS];
+        private final boolean[] quoted = new boolean[COLUMNS];
+        private final StringTable table = new StringTable();
+        private final HashMap<String, MeetingTime[]> meetings = new HashMap<>();
+        private byte[] unquoted = new byte[64];
+        private byte delimiter;
+        private boolean header;
+        private int skipped;
+
+        /**
+         * Parses the line held in bytes[from, to).
+         *
+         * @return
+         *      The Course described by the line, null if the line is blank, a header or malformed.
+         */
+        Course parse(byte[] bytes, int from, int to) {
+            boolean mayBeHeader = header;
+            header = false;
+
+            if(to > from && bytes[to - 1] == '\r')
+                to--;
+            if(to == from)
+                return null;
+
+            int column = 0, i = from;
+            while(column < COLUMNS) {
+                quoted[column] = i < to && bytes[i] == '"';
+                if(quoted[column]) {
+                    starts[column] = ++i;
+                    while(i < to && !(bytes[i] == '"' && (i + 1 == to || bytes[i + 1] != '"')))
+                        i += bytes[i] == '"' ? 2 : 1;
+                    ends[column] = Math.min(i, to);
+                    i++;
+                } else {
+                    starts[column] = i;
+                }
+                while(i < to && bytes[i] != delimiter)
+                    i++;
+                if(!quoted[column])
+                    ends[column] = i;
+                column++;
+                if(i >= to)
+                    break;
+                i++;
+            }
+
+            int code, section;
+            MeetingTime[] times = MeetingTime.NONE;
+            if(column < REQUIRED_COLUMNS || (code = parseInt(bytes, 1)) < 0 || (section = parseInt(bytes, 2)) < 0
+                    || section > Byte.MAX_VALUE || (column > REQUIRED_COLUMNS && (times = meetings(bytes)) == null)) {
+                if(!mayBeHeader)
+                    skipped++;
+                return null;
+            }
+
+            return new Course(text(bytes, 3, false), text(bytes, 0, true), code, (byte) section, text(bytes, 4, true), times);
+        }
+
+        /**
+         * Parses the meeting times column, returning null if it is malformed. Each distinct
+         * text is only parsed once.
+         */
+        private MeetingTime[] meetings(byte[] bytes) {
+            String text = text(bytes, REQUIRED_COLUMNS, false);
+            if(text == null || text.isBlank())
+                return MeetingTime.NONE;
+
+            MeetingTime[] times = meetings.get(text);
+            if(times == null) {
+                try {
+                    times = MeetingTime.parse(text);
+                } catch(IllegalArgumentException e) {
+                    return null;
+                }
+                meetings.put(text, times);
+            }
+            return times;
+        }
+
+        /**
+         * Parses a column as a non-negative int, returning -1 if it is not a number.
+         */
+        private int parseInt(byte[] bytes, int column) {
+            int start = starts[column], end = ends[column];
+            while(start < end && bytes[start] == ' ') start++;
+            while(end > start && bytes[end - 1] == ' ') end--;
+            if(start == end || end - start > 9)
+                return -1;
+
+            int value = 0;
+            for(int i = start; i < end; i++) {
+                int digit = bytes[i] - '0';
+                if(digit < 0 || digit > 9)
+                    return -1;
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        /**
+         * Returns the String of a text column. A shared column is looked up in the table of
+         * pooled Strings, so its String is only created if it was not seen before.
+         */
+        private String text(byte[] bytes, int column, boolean shared) {
+            int start = starts[column], end = ends[column];
+            if(!quoted[column])
+                return shared ? table.get(bytes, start, end - start) : new String(bytes, start, end - start, StandardCharsets.UTF_8);
+
+            int length = 0;
+            if(unquoted.length < end - start)
+                unquoted = new byte[end - start];
+            for(int i = start; i < end; i++) {
+                unquoted[length++] = bytes[i];
+                if(bytes[i] == '"')
+                    i++;
+            }
+            return shared ? table.get(unquoted, 0, length) : new String(unquoted, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Open-addressing table of the pooled Strings of a column, looked up by the bytes they
+     * were decoded from. Only ASCII values are kept, and each is compared with the bytes
+     * character by character, so the table holds no copy of the bytes. The table stops
+     * growing once it holds StringPool.MAX_SIZE values.
+     */
+    private static final class StringTable {
+        private String[] values = new String[256];
+        private int[] hashes = new int[256];
+        private int size;
+
+        String get(byte[] bytes, int offset, int length) {
+            int hash = 1, ascii = 0;
+            for(int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + bytes[i];
+                ascii |= bytes[i];
+            }
+            if(ascii < 0)
+                return StringPool.intern(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            hash ^= hash >>> 16;
+
+            int mask = values.length - 1;
+            for(int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                String value = values[slot];
+                if(value == null) {
+                    value = StringPool.intern(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+                    if(size < StringPool.MAX_SIZE) {
+                        values[slot] = value;
+                        hashes[slot] = hash;
+                        if(++size > values.length >> 1)
+                            grow();
+                    }
+                    return value;
+                }
+                if(hashes[slot] == hash && matches(value, bytes, offset, length))
+                    return value;
+            }
+        }
+
+        private static boolean matches(String value, byte[] bytes, int offset, int length) {
+            if(value.length() != length)
+                return false;
+            for(int i = 0; i < length; i++)
+                if(value.charAt(i) != bytes[offset + i])
+                    return false;
+            return true;
+        }
+
+        private void grow() {
+            String[] oldValues = values;
+            int[] oldHashes = hashes;
+            values = new String[oldValues.length << 1];
+            hashes = new int[oldValues.length << 1];
+
+            int mask = values.length - 1;
+            for(int i = 0; i < oldValues.length; i++) {
+                if(oldValues[i] == null)
+                    continue;
+
+                int slot = oldHashes[i] & mask;
+                while(values[slot] != null)
+                    slot = (slot + 1) & mask;
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
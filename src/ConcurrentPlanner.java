@@ -0,0 +1,282 @@
+/**
+ * The ConcurrentPlanner class is a Planner that may be shared between threads. Changes are
+ * made one at a time on a private Planner, and after each change a copy of it is published
+ * for readers. Since makeCopy() shares storage copy-on-write, publishing takes constant time,
+ * and readers never wait for a writer: they read the latest published copy, which is never
+ * modified. Each read therefore sees the Planner as it was after some complete change.
+ * <p>
+ * Publishing is not free for the changes that follow. A published copy shares the chunk
+ * table of the private Planner, so the next change copies the table (one slot per 32
+ * Courses) as well as the chunk it modifies. A published copy also starts without indexes:
+ * the first lookup by Course or department after each change rebuilds the index of the new
+ * copy in time proportional to size(). Lookups are therefore cheapest when reads outnumber
+ * changes, and a series of changes is best made with restore() as a single change.
+ * ConcurrentPlannerStress checks these guarantees under contention.
+ * <p>
+ * Positions are only meaningful within one copy, so a series of reads that must agree with
+ * each other, such as size() followed by getCourse(), should be made on snapshot().
+ *
+ * @author Zhen Wei Liao
+ */
+public class ConcurrentPlanner {
+    private final Object lock = new Object();
+    private final Planner planner;
+    private volatile Planner published;
+
+    /**
+     * Constructor creates an empty ConcurrentPlanner with no limit on the number of courses.
+     */
+    public ConcurrentPlanner() {
+        this(Planner.UNLIMITED);
+    }
+
+    /**
+     * Constructor creates an empty ConcurrentPlanner holding at most the given number of courses.
+     *
+     * @param maxCourses
+     *      The maximum number of courses, or Planner.UNLIMITED for no limit.
+     *
+     * @throws IllegalArgumentException
+     *      when maxCourses is negative.
+     */
+    public ConcurrentPlanner(int maxCourses) throws IllegalArgumentException {
+        planner = new Planner(maxCourses);
+        published = planner.makeCopy();
+    }
+
+    /**
+     * Constructor creates a ConcurrentPlanner holding the Courses of the given Planner.
+     * Later changes to the given Planner do not affect the ConcurrentPlanner.
+     *
+     * @param planner
+     *      The Planner whose Courses and maximum are copied.
+     */
+    public ConcurrentPlanner(Planner planner) {
+        this.planner = planner.makeCopy();
+        published = this.planner.makeCopy();
+    }
+
+    /**
+     * Adds a Course at the given position.
+     *
+     * @param newCourse
+     *      The Course being added.
+     *
+     * @param position
+     *      The position of the new Course, within range 1 <= position <= size() + 1.
+     *
+     * @throws IllegalArgumentException
+     *      when the position is not within the valid range.
+     *
+     * @throws FullPlannerException
+     *      when the Planner has reached its configured maximum number of courses.
+     */
+    public void addCourse(Course newCourse, int position) throws IllegalArgumentException, FullPlannerException {
+        synchronized(lock) {
+            planner.addCourse(newCourse, position);
+            published = planner.makeCopy();
+        }
+    }
+
+    /**
+     * Adds a Course at the end of the Planner.
+     *
+     * @param newCourse
+     *      The Course being added.
+     *
+     * @throws FullPlannerException
+     *      when the Planner has reached its configured maximum number of courses.
+     */
+    public void addCourse(Course newCourse) throws FullPlannerException {
+        synchronized(lock) {
+            planner.addCourse(newCourse);
+            published = planner.makeCopy();
+        }
+    }
+
+    /**
+     * Adds a Course at the given position unless it is already in the Planner. The check
+     * and the addition are made as a single change.
+     *
+     * @param newCourse
+     *      The Course being added.
+     *
+     * @param position
+     *      The position of the new Course, within range 1 <= position <= size() + 1.
+     *
+     * @return
+     *      True if the Course was added, false if it was already in the Planner.
+     *
+     * @throws IllegalArgumentException
+     *      when the position is not within the valid range.
+     *
+     * @throws FullPlannerException
+     *      when the Planner has reached its configured maximum number of courses.
+     */
+    public boolean addIfAbsent(Course newCourse, int position) throws IllegalArgumentException, FullPlannerException {
+        synchronized(lock) {
+            if(planner.exists(newCourse))
+                return false;
+
+            planner.addCourse(newCourse, position);
+            published = planner.makeCopy();
+            return true;
+        }
+    }
+
+    /**
+     * Removes the Course at the given position.
+     *
+     * @param position
+     *      The position of the Course, within range 1 <= position <= size().
+     *
+     * @return
+     *      The removed Course.
+     *
+     * @throws IllegalArgumentException
+     *      when the Planner is empty or the position is not within the valid range.
+     */
+    public Course removeCourse(int position) throws IllegalArgumentException {
+        synchronized(lock) {
+            Course removed = planner.getCourse(position);
+            planner.removeCourse(position);
+            published = planner.makeCopy();
+            return removed;
+        }
+    }
+
+    /**
+     * Removes the first occurrence of a Course. Finding the Course and removing it are made
+     * as a single change, so another change cannot move it in between.
+     *
+     * @param course
+     *      The Course to remove.
+     *
+     * @return
+     *      True if the Course was removed, false if it was not in the Planner.
+     */
+    public boolean remove(Course course) {
+        synchronized(lock) {
+            int index = planner.index(course);
+            if(index < 0)
+                return false;
+
+            planner.removeCourse(index + 1);
+            published = planner.makeCopy();
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the Courses with the ones of the given Planner, keeping the configured maximum.
+     *
+     * @param snapshot
+     *      The Planner whose Courses replace the current ones. It must not be modified by
+     *      another thread during the call.
+     */
+    public void restore(Planner snapshot) {
+        synchronized(lock) {
+            planner.restore(snapshot);
+            published = planner.makeCopy();
+        }
+    }
+
+    /**
+     * Returns a copy of the Planner as of the latest change. The copy belongs to the caller
+     * and may be modified without affecting this ConcurrentPlanner.
+     *
+     * @return
+     *      A copy of the Planner.
+     */
+    public Planner snapshot() {
+        synchronized(lock) {
+            return planner.makeCopy();
+        }
+    }
+
+    /**
+     * Returns the number of Courses.
+     *
+     * @return
+     *      The number of Courses as of the latest change.
+     */
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * Returns the Course at the given position.
+     *
+     * @param position
+     *      The position of the Course, within range 1 <= position <= size().
+     *
+     * @return
+     *      The Course at the position as of the latest change.
+     *
+     * @throws IllegalArgumentException
+     *      when the Planner is empty or the position is not within the valid range.
+     */
+    public Course getCourse(int position) throws IllegalArgumentException {
+        return published.getCourse(position);
+    }
+
+    /**
+     * Checks if a Course is in the Planner.
+     *
+     * @param course
+     *      The Course to look for.
+     *
+     * @return
+     *      True if the Course is in the Planner as of the latest change.
+     */
+    public boolean exists(Course course) {
+        return published.exists(course);
+    }
+
+    /**
+     * Returns the position of a Course.
+     *
+     * @param course
+     *      The Course to look for.
+     *
+     * @return
+     *      The first position of the Course as of the latest change, -1 if it is not in the Planner.
+     */
+    public int index(Course course) {
+        return published.index(course);
+    }
+
+    /**
+     * Returns the positions of the Courses of a department.
+     *
+     * @param department
+     *      The department to look for.
+     *
+     * @return
+     *      The positions of the matching Courses as of the latest change, in ascending order.
+     */
+    public int[] filter(String department) {
+        return published.filter(department);
+    }
+
+    /**
+     * Returns the Courses in order.
+     *
+     * @return
+     *      A new array of the Courses as of the latest change.
+     */
+    public Course[] getCourses() {
+        return published.getCourses();
+    }
+
+    /**
+     * Returns the table of the Courses.
+     *
+     * @return
+     *      The table of the Planner as of the latest change.
+     */
+    @Override
+    public String toString() {
+        return published.toString();
+    }
+}
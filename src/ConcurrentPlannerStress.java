@@ -0,0 +1,246 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The ConcurrentPlannerStress class checks that a ConcurrentPlanner shared by writer and
+ * reader threads behaves as if every change were made at one instant, in an order that
+ * respects the order of each writer.
+ * <p>
+ * Each writer appends its own Courses, numbered 0, 1, 2, ..., and after every tenth one
+ * removes the Course it added five before, through ConcurrentPlanner.remove(). It also
+ * checks that addIfAbsent() refuses a Course it already added. Readers keep checking the
+ * Planners they see, both from snapshot() and from the published copy:
+ * <ul>
+ *   <li>the size matches the number of Courses;</li>
+ *   <li>the Courses of each writer appear in the order they were added, and are exactly
+ *   those left after some number of the writer's changes, so no change is seen in part,
+ *   out of order or lost;</li>
+ *   <li>the number of changes seen of each writer never decreases from one read to the
+ *   next;</li>
+ *   <li>filter() returns ascending positions within the Planner.</li>
+ * </ul>
+ * When the writers are done, the Planner must hold every Course that was not removed.
+ * <p>
+ * The arguments are "--writers 3", "--readers 2" and "--courses 20000" per writer. The
+ * program prints a summary and exits with status 1 on the first violation found.
+ *
+ * @author Zhen Wei Liao
+ */
+public class ConcurrentPlannerStress {
+    private static final int REMOVE_EVERY = 10, REMOVE_DISTANCE = 5;
+
+    private final ConcurrentPlanner planner = new ConcurrentPlanner();
+    private final int writers, courses;
+    private final HashMap<String, Integer> writerOf = new HashMap<>();
+    private final AtomicBoolean writing = new AtomicBoolean(true);
+    private final AtomicReference<String> failure = new AtomicReference<>();
+    private final AtomicLong reads = new AtomicLong();
+
+    /**
+     * Constructor prepares a stress run.
+     *
+     * @param writers
+     *      The number of writer threads.
+     *
+     * @param courses
+     *      The number of Courses each writer adds.
+     */
+    private ConcurrentPlannerStress(int writers, int courses) {
+        this.writers = writers;
+        this.courses = courses;
+        for(int w = 0; w < writers; w++)
+            writerOf.put(department(w), w);
+    }
+
+    /**
+     * Returns the department of the Courses of a writer.
+     */
+    private static String department(int writer) {
+        return "W" + writer;
+    }
+
+    /**
+     * Returns the Course a writer adds at the given step.
+     */
+    private static Course course(int writer, int step) {
+        return new Course("Course " + step, department(writer), step, (byte) 1, "Writer " + writer);
+    }
+
+    /**
+     * Makes the changes of one writer.
+     */
+    private void write(int writer) throws FullPlannerException {
+        for(int step = 0; step < courses && failure.get() == null; step++) {
+            planner.addCourse(course(writer, step));
+            if(step > 0 && step % REMOVE_EVERY == 3 && planner.addIfAbsent(course(writer, step - 1), 1))
+                fail("addIfAbsent() added " + course(writer, step - 1) + " of writer " + writer + " twice.");
+            if(step % REMOVE_EVERY == REMOVE_EVERY - 1 && !planner.remove(course(writer, step - REMOVE_DISTANCE)))
+                fail("remove() did not find " + course(writer, step - REMOVE_DISTANCE) + " of writer " + writer + ".");
+        }
+    }
+
+    /**
+     * Checks the Planners seen by one reader until the writers are done.
+     */
+    private void read() {
+        long[] seen = new long[writers];
+        while(writing.get() && failure.get() == null) {
+            Planner snapshot = planner.snapshot();
+            Course[] copy = snapshot.getCourses();
+            if(copy.length != snapshot.size())
+                fail("snapshot() has size " + snapshot.size() + " but holds " + copy.length + " courses.");
+            check(copy, seen, "snapshot()");
+            check(planner.getCourses(), seen, "getCourses()");
+
+            int[] positions = planner.filter(department(0));
+            for(int i = 0; i < positions.length; i++)
+                if(positions[i] < 1 || (i > 0 && positions[i] <= positions[i - 1]))
+                    fail("filter() returned positions out of order: " + Arrays.toString(positions));
+            reads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks that the Courses of each writer are those left after some number of its changes,
+     * at least as many as seen before.
+     */
+    private void check(Course[] planned, long[] seen, String source) {
+        ArrayList<ArrayList<Integer>> steps = new ArrayList<>();
+        for(int w = 0; w < writers; w++)
+            steps.add(new ArrayList<>());
+        for(Course course : planned) {
+            Integer writer = writerOf.get(course.getDepartment());
+            if(writer == null) {
+                fail(source + " holds an unknown course " + course + ".");
+                return;
+            }
+            steps.get(writer).add(course.getCode());
+        }
+
+        for(int w = 0; w < writers; w++) {
+            ArrayList<Integer> added = steps.get(w);
+            int last = added.isEmpty() ? -1 : added.get(added.size() - 1);
+            boolean lastRemoved = last % REMOVE_EVERY == REMOVE_EVERY - 1 && !added.contains(last - REMOVE_DISTANCE);
+
+            ArrayList<Integer> expected = new ArrayList<>();
+            int removed = 0;
+            for(int step = 0; step <= last; step++) {
+                boolean gone = step % REMOVE_EVERY == REMOVE_EVERY - 1 - REMOVE_DISTANCE
+                        && (step + REMOVE_DISTANCE < last || (step + REMOVE_DISTANCE == last && lastRemoved));
+                if(gone)
+                    removed++;
+                else
+                    expected.add(step);
+            }
+            if(!added.equals(expected)) {
+                fail(source + " shows writer " + w + " after a partial or reordered change: " + added);
+                return;
+            }
+
+            long changes = last + 1 + removed;
+            if(changes < seen[w]) {
+                fail(source + " went back from " + seen[w] + " to " + changes + " changes of writer " + w + ".");
+                return;
+            }
+            seen[w] = changes;
+        }
+    }
+
+    /**
+     * Records the first violation found.
+     */
+    private void fail(String message) {
+        failure.compareAndSet(null, message);
+    }
+
+    /**
+     * Runs the writers and readers and checks the final Planner.
+     *
+     * @param readers
+     *      The number of reader threads.
+     *
+     * @return
+     *      The first violation found, null if there is none.
+     *
+     * @throws InterruptedException
+     *      when interrupted while waiting for the threads.
+     */
+    private String run(int readers) throws InterruptedException {
+        ArrayList<Thread> writerThreads = new ArrayList<>(), readerThreads = new ArrayList<>();
+        for(int w = 0; w < writers; w++) {
+            int writer = w;
+            writerThreads.add(new Thread(() -> {
+                try {
+                    write(writer);
+                } catch(RuntimeException | FullPlannerException e) {
+                    fail("Writer " + writer + " failed: " + e);
+                }
+            }, "stress-writer-" + w));
+        }
+        for(int r = 0; r < readers; r++) {
+            readerThreads.add(new Thread(() -> {
+                try {
+                    read();
+                } catch(RuntimeException e) {
+                    fail("Reader failed: " + e);
+                }
+            }, "stress-reader-" + r));
+        }
+
+        for(Thread thread : readerThreads)
+            thread.start();
+        for(Thread thread : writerThreads)
+            thread.start();
+        for(Thread thread : writerThreads)
+            thread.join();
+        writing.set(false);
+        for(Thread thread : readerThreads)
+            thread.join();
+
+        if(failure.get() == null) {
+            check(planner.getCourses(), new long[writers], "The final planner");
+            int expected = writers * (courses - courses / REMOVE_EVERY);
+            if(planner.size() != expected)
+                fail("The final planner holds " + planner.size() + " courses instead of " + expected + ".");
+        }
+        return failure.get();
+    }
+
+    /**
+     * Runs the stress test.
+     *
+     * @param args
+     *      "--writers N", "--readers N" and "--courses N", all optional.
+     *
+     * @throws InterruptedException
+     *      when interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = 3, readers = 2, courses = 20000;
+        for(int i = 0; i + 1 < args.length; i++) {
+            switch(args[i]) {
+                case "--writers" -> writers = Integer.parseInt(args[++i]);
+                case "--readers" -> readers = Integer.parseInt(args[++i]);
+                case "--courses" -> courses = Integer.parseInt(args[++i]);
+                default -> { }
+            }
+        }
+        if(writers < 1 || readers < 0 || courses < 0)
+            throw new IllegalArgumentException("Error: Writers must be positive and readers and courses not negative.");
+
+        ConcurrentPlannerStress stress = new ConcurrentPlannerStress(writers, courses);
+        long start = System.nanoTime();
+        String failure = stress.run(readers);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if(failure != null) {
+            System.out.println("Error: " + failure);
+            System.exit(1);
+        }
+        System.out.println("Stress test passed: " + writers + " writers made " + (long) writers * courses
+                + " additions, " + readers + " readers checked " + stress.reads.get() + " reads in " + millis + " ms.");
+    }
+}
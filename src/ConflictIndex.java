@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ConflictIndex class indexes the meetings of the Courses in a Planner by day and start
+ * time, so that the Courses meeting at the same time as a given one are found without looking
+ * at every Course. Each day keeps its meetings sorted by start and counts the lengths of its
+ * meetings to know the longest one, which is lowered again when that meeting is removed: a
+ * meeting overlapping [start, end) must start before end and less than the longest meeting
+ * before start, so a lookup only visits that range of the day.
+ * <p>
+ * A Course added to the index more than once is tracked as separate occurrences. A Course
+ * never conflicts with itself or with an equal Course, so the occurrences of a section are
+ * not reported against each other by either conflicts() or pairs().
+ *
+ * @author Zhen Wei Liao
+ */
+class ConflictIndex {
+    /**
+     * One meeting of one occurrence of a Course.
+     */
+    private static final class Slot {
+        private final Course course;
+        private final int occurrence;
+        private final MeetingTime time;
+
+        Slot(Course course, int occurrence, MeetingTime time) {
+            this.course = course;
+            this.occurrence = occurrence;
+            this.time = time;
+        }
+    }
+
+    private final ArrayList<TreeMap<Integer, ArrayList<Slot>>> days = new ArrayList<>(MeetingTime.DAYS);
+    private final ArrayList<TreeMap<Integer, Integer>> lengths = new ArrayList<>(MeetingTime.DAYS);
+    private final int[] longest = new int[MeetingTime.DAYS];
+    private int occurrences;
+
+    /**
+     * Constructor creates an empty ConflictIndex.
+     */
+    ConflictIndex() {
+        for(int d = 0; d < MeetingTime.DAYS; d++)
+            days.add(new TreeMap<>());
+        for(int d = 0; d < MeetingTime.DAYS; d++)
+            lengths.add(new TreeMap<>());
+    }
+
+    /**
+     * Adds the meetings of a Course.
+     *
+     * @param course
+     *      The Course being added.
+     */
+    void add(Course course) {
+        int occurrence = occurrences++;
+        for(MeetingTime time : course.meetings()) {
+            days.get(time.getDay()).computeIfAbsent(time.getStart(), k -> new ArrayList<>(1))
+                    .add(new Slot(course, occurrence, time));
+            lengths.get(time.getDay()).merge(time.getEnd() - time.getStart(), 1, Integer::sum);
+            longest[time.getDay()] = Math.max(longest[time.getDay()], time.getEnd() - time.getStart());
+        }
+    }
+
+    /**
+     * Removes the meetings of one occurrence of a Course.
+     *
+     * @param course
+     *      The Course being removed.
+     */
+    void remove(Course course) {
+        int occurrence = -1;
+        for(MeetingTime time : course.meetings()) {
+            ArrayList<Slot> slots = days.get(time.getDay()).get(time.getStart());
+            for(int i = 0; slots != null && i < slots.size(); i++) {
+                Slot slot = slots.get(i);
+                if(slot.course == course && slot.time.equals(time) && (occurrence < 0 || slot.occurrence == occurrence)) {
+                    occurrence = slot.occurrence;
+                    slots.remove(i);
+                    if(slots.isEmpty())
+                        days.get(time.getDay()).remove(time.getStart());
+                    removeLength(time);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the length of a removed meeting, lowering the longest meeting of its day if it
+     * was the last one that long.
+     */
+    private void removeLength(MeetingTime time) {
+        TreeMap<Integer, Integer> day = lengths.get(time.getDay());
+        int length = time.getEnd() - time.getStart();
+        if(day.merge(length, -1, Integer::sum) == 0) {
+            day.remove(length);
+            longest[time.getDay()] = day.isEmpty() ? 0 : day.lastKey();
+        }
+    }
+
+    /**
+     * Returns the indexed Courses that meet at the same time as the given one, other than the
+     * Courses equal to it.
+     *
+     * @param course
+     *      The Course to check.
+     *
+     * @return
+     *      The conflicting Courses, each occurrence listed once, in order of the meetings of
+     *      the given Course.
+     */
+    List<Course> conflicts(Course course) {
+        LinkedHashMap<Integer, Course> found = new LinkedHashMap<>();
+        for(MeetingTime time : course.meetings()) {
+            int day = time.getDay();
+            Map<Integer, ArrayList<Slot>> candidates =
+                    days.get(day).subMap(time.getStart() - longest[day], false, time.getEnd(), false);
+            for(ArrayList<Slot> slots : candidates.values())
+                for(Slot slot : slots)
+                    if(!slot.course.equals(course) && slot.time.getEnd() > time.getStart())
+                        found.putIfAbsent(slot.occurrence, slot.course);
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Returns every pair of indexed Courses that meet at the same time. Each day is swept in
+     * order of start time, comparing every meeting only with the meetings still in progress.
+     *
+     * @return
+     *      The conflicting pairs of different Courses, each listed once even if they overlap
+     *      on several days, in order of their first overlap during the week.
+     */
+    List<Course[]> pairs() {
+        ArrayList<Course[]> pairs = new ArrayList<>();
+        HashSet<Long> seen = new HashSet<>();
+        ArrayList<Slot> active = new ArrayList<>();
+        for(TreeMap<Integer, ArrayList<Slot>> day : days) {
+            active.clear();
+            for(Map.Entry<Integer, ArrayList<Slot>> entry : day.entrySet()) {
+                int start = entry.getKey();
+                active.removeIf(slot -> slot.time.getEnd() <= start);
+                for(Slot slot : entry.getValue()) {
+                    for(Slot other : active) {
+                        if(other.course.equals(slot.course))
+                            continue;
+
+                        int low = Math.min(other.occurrence, slot.occurrence), high = Math.max(other.occurrence, slot.occurrence);
+                        if(seen.add((long) low << 32 | high))
+                            pairs.add(new Course[]{other.course, slot.course});
+                    }
+                    active.add(slot);
+                }
+            }
+        }
+        return pairs;
+    }
+}
@@ -1,23 +1,151 @@
+import java.util.Arrays;
+import java.util.Objects;
+
 /**
  * The Course class contains basic course information such as the name,
  * the department, the code, the section, and the instructor of the course.
- * The Course class implements the Cloneable interface for the purpose of overriding 
- * the clone() method.
+ * The department and the instructor are shared through the StringPool, so
+ * equal values are usually the same String object; values first seen after
+ * the pool is full are not shared. A Course may also have weekly meeting
+ * times, which describe when the section meets but are not part of its
+ * identity.
+ * <p>
+ * A Course is immutable: its information is set when it is created, through a
+ * constructor or a Builder, and never changes afterwards. The same Course object can
+ * therefore be shared by any number of Planners, backups and indexes without being
+ * copied, and its hash code is computed once and kept.
  *
  * @author Zhen Wei Liao
  */
 
-public class Course{
-    private String name;
-    private String department;
-    private int code;
-    private byte section;
-    private String instructor;
+public final class Course{
+    private final String name;
+    private final String department;
+    private final int code;
+    private final byte section;
+    private final String instructor;
+    private final MeetingTime[] meetings;
+    private final int hash;
 
     /**
-     * Constructor used to create a Course object with no information in it.
+     * The Builder class collects the information of a Course, checking each value as it
+     * is set, and creates the Course once everything is known.
      */
-    public Course(){
+    public static final class Builder {
+        private String name, department, instructor;
+        private int code;
+        private byte section;
+        private MeetingTime[] meetings = MeetingTime.NONE;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the name of the course.
+         *
+         * @param name
+         * 		The course name.
+         *
+         * @return
+         * 		This Builder.
+         */
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Sets the department of the course.
+         *
+         * @param department
+         * 		The course department.
+         *
+         * @return
+         * 		This Builder.
+         */
+        public Builder department(String department) {
+            this.department = department;
+            return this;
+        }
+
+        /**
+         * Sets the code of the course.
+         *
+         * @param code
+         * 		The course code.
+         *
+         * @return
+         * 		This Builder.
+         *
+         * @throws NegativeValueException
+         * 		when the code is a negative number.
+         */
+        public Builder code(int code) throws NegativeValueException {
+            if(code < 0)
+                throw new NegativeValueException("Invalid Input. Code can't be negative.");
+
+            this.code = code;
+            return this;
+        }
+
+        /**
+         * Sets the section of the course.
+         *
+         * @param section
+         * 		The section of the course.
+         *
+         * @return
+         * 		This Builder.
+         *
+         * @throws NegativeValueException
+         * 		when the section is a negative number.
+         */
+        public Builder section(byte section) throws NegativeValueException {
+            if(section < 0)
+                throw new NegativeValueException("Invalid Section.");
+
+            this.section = section;
+            return this;
+        }
+
+        /**
+         * Sets the instructor of the course.
+         *
+         * @param instructor
+         * 		The instructor of the course.
+         *
+         * @return
+         * 		This Builder.
+         */
+        public Builder instructor(String instructor) {
+            this.instructor = instructor;
+            return this;
+        }
+
+        /**
+         * Sets the weekly meeting times of the course.
+         *
+         * @param meetings
+         * 		The meeting times of the course, null or empty for none.
+         *
+         * @return
+         * 		This Builder.
+         */
+        public Builder meetings(MeetingTime[] meetings) {
+            this.meetings = meetings;
+            return this;
+        }
+
+        /**
+         * Creates a Course holding the information set so far. The Builder may be
+         * changed and used again afterwards without affecting the Course.
+         *
+         * @return
+         * 		A new Course.
+         */
+        public Course build() {
+            return new Course(name, department, code, section, instructor, meetings);
+        }
     }
 
     /**
@@ -39,11 +167,77 @@ public class Course{
      *  	The course instructor.
      */
     public Course(String name, String department, int code, byte section, String instructor){
+        this(name, department, code, section, instructor, MeetingTime.NONE);
+    }
+
+    /**
+     * Constructor used to create a new Course object with specific attributes and meeting times.
+     *
+     *  @param name
+     *  	The course name.
+     *
+     *  @param department
+     *  	The course department.
+     *
+     *  @param code
+     *  	The course code.
+     *
+     *  @param section
+     *  	The course section.
+     *
+     *  @param instructor
+     *  	The course instructor.
+     *
+     *  @param meetings
+     *  	The weekly meeting times of the course, null or empty for none.
+     */
+    public Course(String name, String department, int code, byte section, String instructor, MeetingTime[] meetings){
         this.name = name;
-        this.department = department;
+        this.department = StringPool.intern(department);
         this.code = code;
         this.section = section;
-        this.instructor = instructor;
+        this.instructor = StringPool.intern(instructor);
+
+        if(meetings == null || meetings.length == 0)
+            this.meetings = MeetingTime.NONE;
+        else {
+            this.meetings = meetings.clone();
+            Arrays.sort(this.meetings);
+        }
+
+        int hash = Objects.hashCode(name);
+        hash = 31 * hash + Objects.hashCode(this.department);
+        hash = 31 * hash + code;
+        hash = 31 * hash + section;
+        this.hash = 31 * hash + Objects.hashCode(this.instructor);
+    }
+
+    /**
+     * Returns a new Builder with no information set.
+     *
+     * @return
+     * 		An empty Builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a new Builder holding the information of this Course, from which a Course that
+     * differs in some of it can be created.
+     *
+     * @return
+     * 		A Builder initialized with this Course.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.name = name;
+        builder.department = department;
+        builder.code = code;
+        builder.section = section;
+        builder.instructor = instructor;
+        builder.meetings = meetings;
+        return builder;
     }
 
     /**
@@ -97,65 +291,21 @@ public class Course{
     }
 
     /**
-     * Modifier. Modifies the name of the course.
-     *
-     * @param name
-     * 		The course name.
-     */
-    public void setName(String name) {
-        this.name = name;
-    }
-
-    /**
-     * Modifier. Modifies the department of the course.
+     * Accessor. Returns the weekly meeting times of the course.
      *
-     * @param department
-     * 		The course department.
-     */
-    public void setDepartment(String department) {
-        this.department = department;
-    }
-
-    /**
-     * Modifier. Modifies the code of the course.
-     *
-     * @param code
-     * 		The course code.
-     *
-     * @throws NegativeValueException
-     * 		when the code is set to a negative number.
-     */
-    public void setCode(int code) throws NegativeValueException {
-        if(code < 0)
-            throw new NegativeValueException("Invalid Input. Code can't be negative.");
-
-        this.code = code;
-    }
-
-    /**
-     * Modifier. Modifies the section of the course.
-     *
-     * @param section
-     * 		The section of the course.
-     *
-     * @throws NegativeValueException
-     * 		when the section is set to a negative number.
+     * @return
+     * 		A copy of the meeting times, empty if the course has none.
      */
-    public void setSection(byte section) throws NegativeValueException{
-        if(section < 0)
-            throw new NegativeValueException("Invalid Section.");
-
-        this.section = section;
+    public MeetingTime[] getMeetings() {
+        return this.meetings.clone();
     }
 
     /**
-     * Modifier. Modifies the instructor of the course.
-     *
-     * @param instructor
-     * 		The instructor of the course.
+     * Returns the meeting times of the course without copying them, for the indexes of
+     * the Planner.
      */
-    public void setInstructor(String instructor) {
-        this.instructor = instructor;
+    MeetingTime[] meetings() {
+        return this.meetings;
     }
 
     /**
@@ -167,6 +317,9 @@ public class Course{
      * @return
      * 		The boolean value or truth value after comparing all the information.
      * 		If obj is not a Course object, the method would always return false.
+     * 		Information that is not set compares equal only to information that is not set.
+     * 		The cached hash codes are compared first, and the pooled department and
+     * 		instructor are usually the same String, which equals() checks first.
      *
      * */
     @Override
@@ -175,15 +328,30 @@ public class Course{
         if(!(obj instanceof Course))return false;
 
         Course objCourse = (Course)obj;
+        if(objCourse.hash != this.hash)return false;
 
-        boolean compareName = objCourse.name.equals(this.name), compareDepartment = objCourse.department.equals(this.department),
+        boolean compareName = Objects.equals(objCourse.name, this.name), compareDepartment = Objects.equals(objCourse.department, this.department),
                 compareCode = objCourse.code == this.code, compareSection = objCourse.section == this.section,
-                compareInstructor = objCourse.instructor.equals(this.instructor);
+                compareInstructor = Objects.equals(objCourse.instructor, this.instructor);
 
         return compareName && compareDepartment && compareCode && compareSection && compareInstructor;
 
     }
 
+    /**
+     * Returns a hash code computed from the same information compared by equals(),
+     * so that equal Course objects always have the same hash code. The hash code is
+     * computed when the Course is created.
+     *
+     * @return
+     * 		The hash code of this Course object.
+     *
+     * */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Returns the String representation of the Course object in the format of (department code.section).
      *
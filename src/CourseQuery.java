@@ -0,0 +1,265 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The CourseQuery class selects Courses by department, range of codes, section and
+ * instructor, each of which is optional, and may limit the number of Courses selected.
+ * <p>
+ * A query is applied to a Stream, so nothing is evaluated until the Stream is consumed,
+ * Courses are tested one at a time without intermediate arrays, and the search stops as
+ * soon as the limit is reached. Applied to Planner.parallelStream(), a large Planner is
+ * searched on every core. Departments and instructors are compared through the
+ * StringPool, by reference, and a department or instructor that no Course has makes the
+ * query match nothing without testing any Course. Once the StringPool is full, values it
+ * has not pooled are compared with equals() instead. When the positions of the matching
+ * Courses in a Planner are asked for and a department is given, the range index of the
+ * Planner narrows the search to the Courses of the department within the range of codes.
+ *
+ * @author Zhen Wei Liao
+ */
+public final class CourseQuery implements Predicate<Course> {
+    public static final long NO_LIMIT = Long.MAX_VALUE;
+    private static final int ANY_SECTION = -1;
+
+    private final String department, instructor;
+    private final boolean anyDepartment, anyInstructor, empty;
+    private final boolean pooledDepartment, pooledInstructor;
+    private final int minCode, maxCode, section;
+    private final long limit;
+
+    /**
+     * The Builder class collects the conditions of a CourseQuery.
+     */
+    public static final class Builder {
+        private String department, instructor;
+        private int minCode = 0, maxCode = Integer.MAX_VALUE, section = ANY_SECTION;
+        private long limit = NO_LIMIT;
+
+        private Builder() {
+        }
+
+        /**
+         * Selects the Courses of a department.
+         *
+         * @param department
+         *      The department, or null for any department.
+         *
+         * @return
+         *      This Builder.
+         */
+        public Builder department(String department) {
+            this.department = department;
+            return this;
+        }
+
+        /**
+         * Selects the Courses whose code is within a range.
+         *
+         * @param minCode
+         *      The smallest code of the range.
+         *
+         * @param maxCode
+         *      The largest code of the range.
+         *
+         * @return
+         *      This Builder.
+         *
+         * @throws IllegalArgumentException
+         *      when minCode is greater than maxCode.
+         */
+        public Builder codes(int minCode, int maxCode) throws IllegalArgumentException {
+            if(minCode > maxCode)
+                throw new IllegalArgumentException("Invalid code range: " + minCode + " > " + maxCode);
+            this.minCode = minCode;
+            this.maxCode = maxCode;
+            return this;
+        }
+
+        /**
+         * Selects the Courses with a code.
+         *
+         * @param code
+         *      The code of the Courses.
+         *
+         * @return
+         *      This Builder.
+         */
+        public Builder code(int code) {
+            return codes(code, code);
+        }
+
+        /**
+         * Selects the Courses of a section.
+         *
+         * @param section
+         *      The section of the Courses.
+         *
+         * @return
+         *      This Builder.
+         *
+         * @throws NegativeValueException
+         *      when the section is a negative number.
+         */
+        public Builder section(byte section) throws NegativeValueException {
+            if(section < 0)
+                throw new NegativeValueException("Invalid Section.");
+            this.section = section;
+            return this;
+        }
+
+        /**
+         * Selects the Courses taught by an instructor.
+         *
+         * @param instructor
+         *      The instructor, or null for any instructor.
+         *
+         * @return
+         *      This Builder.
+         */
+        public Builder instructor(String instructor) {
+            this.instructor = instructor;
+            return this;
+        }
+
+        /**
+         * Limits the number of Courses selected. The first matching Courses in order are kept.
+         *
+         * @param limit
+         *      The maximum number of Courses, or NO_LIMIT.
+         *
+         * @return
+         *      This Builder.
+         *
+         * @throws IllegalArgumentException
+         *      when the limit is negative.
+         */
+        public Builder limit(long limit) throws IllegalArgumentException {
+            if(limit < 0)
+                throw new IllegalArgumentException("Error: Limit can't be negative.");
+            this.limit = limit;
+            return this;
+        }
+
+        /**
+         * Creates the CourseQuery.
+         *
+         * @return
+         *      A CourseQuery with the conditions set so far.
+         */
+        public CourseQuery build() {
+            return new CourseQuery(this);
+        }
+    }
+
+    private CourseQuery(Builder builder) {
+        anyDepartment = builder.department == null;
+        anyInstructor = builder.instructor == null;
+        String department = StringPool.lookup(builder.department), instructor = StringPool.lookup(builder.instructor);
+        pooledDepartment = department != null;
+        pooledInstructor = instructor != null;
+        this.department = pooledDepartment ? department : builder.department;
+        this.instructor = pooledInstructor ? instructor : builder.instructor;
+        empty = (!StringPool.isFull() && ((!anyDepartment && !pooledDepartment) || (!anyInstructor && !pooledInstructor)))
+                || builder.limit == 0;
+        minCode = builder.minCode;
+        maxCode = builder.maxCode;
+        section = builder.section;
+        limit = builder.limit;
+    }
+
+    /**
+     * Returns a new Builder with no condition set.
+     *
+     * @return
+     *      A Builder that selects every Course.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Checks if a Course meets every condition of the query. The limit is not considered.
+     *
+     * @param course
+     *      The Course to check.
+     *
+     * @return
+     *      True if the Course matches, false otherwise.
+     */
+    @Override
+    public boolean test(Course course) {
+        int code = course.getCode();
+        return code >= minCode && code <= maxCode
+                && (anyDepartment || matches(course.getDepartment(), department, pooledDepartment))
+                && (section == ANY_SECTION || course.getSection() == section)
+                && (anyInstructor || matches(course.getInstructor(), instructor, pooledInstructor));
+    }
+
+    /**
+     * Compares a value of a Course with the one the query looks for, by reference if the
+     * StringPool holds it.
+     */
+    private static boolean matches(String value, String wanted, boolean pooled) {
+        return value == wanted || (!pooled && wanted.equals(value));
+    }
+
+    /**
+     * Adds the query to a Stream of Courses. Nothing is evaluated until the returned
+     * Stream is consumed.
+     *
+     * @param courses
+     *      The Stream of Courses, sequential or parallel.
+     *
+     * @return
+     *      A Stream of the matching Courses, in the order of the given Stream, stopping at
+     *      the limit.
+     */
+    public Stream<Course> apply(Stream<Course> courses) {
+        if(empty)
+            return Stream.empty();
+        Stream<Course> matching = courses.filter(this);
+        return limit == NO_LIMIT ? matching : matching.limit(limit);
+    }
+
+    /**
+     * Returns the Courses of a Planner that match the query.
+     *
+     * @param planner
+     *      The Planner to search.
+     *
+     * @return
+     *      The matching Courses in order, up to the limit.
+     */
+    public List<Course> list(Planner planner) {
+        return apply(planner.stream()).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the positions of the Courses of a Planner that match the query.
+     *
+     * @param planner
+     *      The Planner to search.
+     *
+     * @return
+     *      The positions of the matching Courses in ascending order, up to the limit.
+     */
+    public int[] positions(Planner planner) {
+        if(empty)
+            return new int[0];
+        IntStream candidates;
+        if(anyDepartment)
+            candidates = IntStream.rangeClosed(1, planner.size());
+        else {
+            int[] inRange = planner.range(department, minCode, maxCode);
+            Arrays.sort(inRange);
+            candidates = Arrays.stream(inRange);
+        }
+
+        IntStream matching = candidates.filter(position -> test(planner.getCourse(position)));
+        return (limit == NO_LIMIT ? matching : matching.limit(limit)).toArray();
+    }
+}
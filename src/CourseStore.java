@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The CourseStore class keeps Courses column by column in parallel primitive arrays: the
+ * codes and sections as numbers, and the departments and instructors as their numbers in a
+ * dictionary of the store, which also holds the values the StringPool did not pool. Names
+ * and meeting times are kept as they are. Scans over the store run over the arrays alone,
+ * without following a reference per Course or per String, and Course objects are only
+ * created for the rows a scan returns.
+ *
+ * @author Zhen Wei Liao
+ */
+public class CourseStore {
+    private static final int NULL_ID = -1;
+
+    private String[] names;
+    private int[] departments;
+    private int[] codes;
+    private byte[] sections;
+    private int[] instructors;
+    private MeetingTime[][] meetings;
+    private int size;
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final ArrayList<String> strings = new ArrayList<>();
+
+    /**
+     * Constructor creates an empty CourseStore.
+     */
+    public CourseStore() {
+        this(16);
+    }
+
+    /**
+     * Constructor creates an empty CourseStore with room for the given number of Courses.
+     *
+     * @param capacity
+     *      The number of Courses the store holds before growing.
+     *
+     * @throws IllegalArgumentException
+     *      when capacity is negative.
+     */
+    public CourseStore(int capacity) throws IllegalArgumentException {
+        if(capacity < 0)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+        names = new String[capacity];
+        departments = new int[capacity];
+        codes = new int[capacity];
+        sections = new byte[capacity];
+        instructors = new int[capacity];
+        meetings = new MeetingTime[capacity][];
+    }
+
+    /**
+     * Creates a CourseStore holding the given Courses in order.
+     *
+     * @param courses
+     *      The Courses to store.
+     *
+     * @return
+     *      A CourseStore with one row per Course.
+     */
+    public static CourseStore of(List<Course> courses) {
+        CourseStore store = new CourseStore(courses.size());
+        for(Course course : courses)
+            store.add(course);
+        return store;
+    }
+
+    /**
+     * Appends a Course as the last row of the store.
+     *
+     * @param course
+     *      The Course being stored.
+     *
+     * @return
+     *      The row of the Course.
+     */
+    public int add(Course course) {
+        if(size == codes.length)
+            grow();
+
+        names[size] = course.getName();
+        departments[size] = number(course.getDepartment());
+        codes[size] = course.getCode();
+        sections[size] = course.getSection();
+        instructors[size] = number(course.getInstructor());
+        meetings[size] = course.meetings();
+        return size++;
+    }
+
+    /**
+     * Returns the number of rows in the store.
+     *
+     * @return
+     *      The number of Courses stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a Course from a row of the store.
+     *
+     * @param row
+     *      The row, within range 0 <= row < size().
+     *
+     * @return
+     *      A Course holding the information of the row.
+     *
+     * @throws IllegalArgumentException
+     *      when the row is not within the valid range.
+     */
+    public Course get(int row) throws IllegalArgumentException {
+        if(row < 0 || row >= size)
+            throw new IllegalArgumentException("Invalid: Row is not within the valid range [0, " + (size - 1) + "]");
+
+        return new Course(names[row], string(departments[row]), codes[row], sections[row], string(instructors[row]),
+                meetings[row]);
+    }
+
+    /**
+     * Returns the rows of the Courses in a department whose code is within a range.
+     *
+     * @param department
+     *      The department of the Courses.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      The matching rows in ascending order.
+     */
+    public int[] scan(String department, int minCode, int maxCode) {
+        int departmentId = id(department);
+        if(departmentId == NULL_ID && department != null)
+            return new int[0];
+
+        int[] departments = this.departments, codes = this.codes;
+        int count = 0;
+        for(int i = 0; i < size; i++)
+            count += (departments[i] == departmentId & codes[i] >= minCode & codes[i] <= maxCode) ? 1 : 0;
+
+        int[] rows = new int[count];
+        for(int i = 0, n = 0; n < count; i++)
+            if(departments[i] == departmentId & codes[i] >= minCode & codes[i] <= maxCode)
+                rows[n++] = i;
+        return rows;
+    }
+
+    /**
+     * Returns the rows of the Courses of any department whose code is within a range.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      The matching rows in ascending order.
+     */
+    public int[] scan(int minCode, int maxCode) {
+        int[] codes = this.codes;
+        int count = 0;
+        for(int i = 0; i < size; i++)
+            count += (codes[i] >= minCode & codes[i] <= maxCode) ? 1 : 0;
+
+        int[] rows = new int[count];
+        for(int i = 0, n = 0; n < count; i++)
+            if(codes[i] >= minCode & codes[i] <= maxCode)
+                rows[n++] = i;
+        return rows;
+    }
+
+    /**
+     * Returns the rows of the Courses taught by an instructor.
+     *
+     * @param instructor
+     *      The instructor of the Courses.
+     *
+     * @return
+     *      The matching rows in ascending order.
+     */
+    public int[] scanInstructor(String instructor) {
+        int instructorId = id(instructor);
+        if(instructorId == NULL_ID && instructor != null)
+            return new int[0];
+
+        int[] instructors = this.instructors;
+        int count = 0;
+        for(int i = 0; i < size; i++)
+            count += instructors[i] == instructorId ? 1 : 0;
+
+        int[] rows = new int[count];
+        for(int i = 0, n = 0; n < count; i++)
+            if(instructors[i] == instructorId)
+                rows[n++] = i;
+        return rows;
+    }
+
+    /**
+     * Creates the Courses of the given rows.
+     *
+     * @param rows
+     *      Rows of the store, as returned by a scan.
+     *
+     * @return
+     *      The Courses of the rows in the same order.
+     */
+    public List<Course> materialize(int[] rows) {
+        ArrayList<Course> courses = new ArrayList<>(rows.length);
+        for(int row : rows)
+            courses.add(get(row));
+        return courses;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = Math.max(16, codes.length << 1);
+        names = Arrays.copyOf(names, capacity);
+        departments = Arrays.copyOf(departments, capacity);
+        codes = Arrays.copyOf(codes, capacity);
+        sections = Arrays.copyOf(sections, capacity);
+        instructors = Arrays.copyOf(instructors, capacity);
+        meetings = Arrays.copyOf(meetings, capacity);
+    }
+
+    /**
+     * Returns the number of a String, adding it to the dictionary if it is new, NULL_ID for null.
+     */
+    private int number(String value) {
+        if(value == null)
+            return NULL_ID;
+
+        Integer id = ids.get(value);
+        if(id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the number of a String, NULL_ID for null or a String no row holds.
+     */
+    private int id(String value) {
+        Integer id = value == null ? null : ids.get(value);
+        return id == null ? NULL_ID : id;
+    }
+
+    /**
+     * Returns the String of a number, null for NULL_ID.
+     */
+    private String string(int id) {
+        return id == NULL_ID ? null : strings.get(id);
+    }
+}
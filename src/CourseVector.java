@@ -0,0 +1,325 @@
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * The CourseVector class is the ordered storage behind a Planner. Courses are kept in
+ * fixed-size chunks that are shared copy-on-write between a vector and its snapshots,
+ * so taking a snapshot costs constant time and memory. A write only copies the chunks
+ * it touches, and every chunk that is left unchanged stays shared.
+ * <p>
+ * Ownership is tracked with edit tokens: a vector may only modify the chunk table and
+ * the chunks stamped with its own token. Taking a snapshot hands out fresh tokens to
+ * both vectors, which makes all existing structure read-only for each of them.
+ *
+ * @author Zhen Wei Liao
+ */
+class CourseVector {
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private Course[][] chunks;
+    private Object[] chunkOwners;
+    private Object tableOwner;
+    private Object owner = new Object();
+    private int size;
+
+    /**
+     * Constructor creates an empty CourseVector.
+     */
+    CourseVector() {
+        this.chunks = new Course[0][];
+        this.chunkOwners = new Object[0];
+        this.tableOwner = owner;
+    }
+
+    /**
+     * Constructor creates a CourseVector holding the first size Courses of the array.
+     *
+     * @param courses
+     *      Array of Course objects.
+     *
+     * @param size
+     *      Number of courses to take from the array.
+     */
+    CourseVector(Course[] courses, int size) {
+        this();
+        int numOfChunks = (size + CHUNK_MASK) >>> CHUNK_SHIFT;
+        chunks = new Course[numOfChunks][];
+        chunkOwners = new Object[numOfChunks];
+        for(int c = 0; c < numOfChunks; c++) {
+            chunks[c] = Arrays.copyOfRange(courses, c << CHUNK_SHIFT, (c + 1) << CHUNK_SHIFT);
+            chunkOwners[c] = owner;
+        }
+        if(numOfChunks > 0 && (size & CHUNK_MASK) != 0)
+            Arrays.fill(chunks[numOfChunks - 1], size & CHUNK_MASK, CHUNK_SIZE, null);
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of Courses in the vector.
+     *
+     * @return
+     *      The number of Courses.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the Course at the given index.
+     *
+     * @param index
+     *      0-based index within 0 <= index < size().
+     *
+     * @return
+     *      The Course at the index.
+     */
+    Course get(int index) {
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Replaces the Course at the given index.
+     *
+     * @param index
+     *      0-based index within 0 <= index < size().
+     *
+     * @param course
+     *      The new Course at the index.
+     */
+    void set(int index, Course course) {
+        writableChunk(index >>> CHUNK_SHIFT)[index & CHUNK_MASK] = course;
+    }
+
+    /**
+     * Inserts a Course at the given index, moving the Courses at or after it one slot back.
+     *
+     * @param index
+     *      0-based index within 0 <= index <= size().
+     *
+     * @param course
+     *      The Course being inserted.
+     */
+    void insert(int index, Course course) {
+        int lastChunk = size >>> CHUNK_SHIFT, firstChunk = index >>> CHUNK_SHIFT;
+        if(lastChunk == chunks.length || chunks[lastChunk] == null)
+            allocateChunk(lastChunk);
+
+        for(int c = lastChunk; c >= firstChunk; c--) {
+            Course[] chunk = writableChunk(c);
+            int from = c == firstChunk ? index & CHUNK_MASK : 0;
+            int to = c == lastChunk ? size & CHUNK_MASK : CHUNK_MASK;
+
+            System.arraycopy(chunk, from, chunk, from + 1, to - from);
+            if(c != firstChunk)
+                chunk[0] = chunks[c - 1][CHUNK_MASK];
+        }
+
+        chunks[firstChunk][index & CHUNK_MASK] = course;
+        size++;
+    }
+
+    /**
+     * Removes the Course at the given index, moving the Courses after it one slot forward.
+     *
+     * @param index
+     *      0-based index within 0 <= index < size().
+     *
+     * @return
+     *      The removed Course.
+     */
+    Course remove(int index) {
+        int lastChunk = (size - 1) >>> CHUNK_SHIFT, firstChunk = index >>> CHUNK_SHIFT;
+        Course removed = get(index);
+
+        for(int c = firstChunk; c <= lastChunk; c++) {
+            Course[] chunk = writableChunk(c);
+            int from = c == firstChunk ? index & CHUNK_MASK : 0;
+            int to = c == lastChunk ? (size - 1) & CHUNK_MASK : CHUNK_MASK;
+
+            System.arraycopy(chunk, from + 1, chunk, from, to - from);
+            chunk[to] = c != lastChunk ? chunks[c + 1][0] : null;
+        }
+
+        size--;
+        return removed;
+    }
+
+    /**
+     * Moves the Course at one index to another, shifting the Courses in between by one slot.
+     * Only the chunks holding the shifted range are copied if they are shared.
+     *
+     * @param from
+     *      0-based index of the Course to move, within 0 <= from < size().
+     *
+     * @param to
+     *      0-based index of the Course after the move, within 0 <= to < size().
+     */
+    void move(int from, int to) {
+        Course moved = get(from);
+        if(from < to)
+            for(int i = from; i < to; i++)
+                set(i, get(i + 1));
+        else
+            for(int i = from; i > to; i--)
+                set(i, get(i - 1));
+        set(to, moved);
+    }
+
+    /**
+     * Replaces the Courses of the vector with the ones of an array of the same size. Slots
+     * that already hold the same Course are left untouched, so their chunks stay shared.
+     *
+     * @param courses
+     *      Array holding size() Courses.
+     */
+    void replaceAll(Course[] courses) {
+        for(int i = 0; i < size; i++)
+            if(get(i) != courses[i])
+                set(i, courses[i]);
+    }
+
+    /**
+     * Returns a snapshot of the vector in constant time. The snapshot and this vector
+     * share all of their chunks until either of them is modified.
+     *
+     * @return
+     *      A CourseVector holding the same Courses as this vector.
+     */
+    CourseVector snapshot() {
+        CourseVector copy = new CourseVector();
+        copy.chunks = chunks;
+        copy.chunkOwners = chunkOwners;
+        copy.tableOwner = tableOwner;
+        copy.size = size;
+
+        owner = new Object();
+        return copy;
+    }
+
+    /**
+     * Returns a spliterator over a snapshot of the vector, so later changes to the vector
+     * are not seen by it. It knows its exact size and splits in halves along chunk
+     * boundaries, which lets parallel streams divide the work evenly.
+     *
+     * @return
+     *      A Spliterator of the Courses in order.
+     */
+    Spliterator<Course> spliterator() {
+        CourseVector snapshot = snapshot();
+        return new Chunks(snapshot.chunks, 0, snapshot.size);
+    }
+
+    /**
+     * Spliterator over the range [index, fence) of a chunk table that is no longer modified.
+     */
+    private static final class Chunks implements Spliterator<Course> {
+        private final Course[][] chunks;
+        private final int fence;
+        private int index;
+
+        Chunks(Course[][] chunks, int index, int fence) {
+            this.chunks = chunks;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Course> action) {
+            if(index >= fence)
+                return false;
+            action.accept(chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+            index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Course> action) {
+            int i = index;
+            index = fence;
+            while(i < fence) {
+                Course[] chunk = chunks[i >>> CHUNK_SHIFT];
+                int end = Math.min(fence - (i & ~CHUNK_MASK), CHUNK_SIZE);
+                for(int slot = i & CHUNK_MASK; slot < end; slot++)
+                    action.accept(chunk[slot]);
+                i = (i & ~CHUNK_MASK) + end;
+            }
+        }
+
+        @Override
+        public Spliterator<Course> trySplit() {
+            int middle = ((index + fence) >>> 1) & ~CHUNK_MASK;
+            if(middle <= index)
+                return null;
+            Chunks prefix = new Chunks(chunks, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+
+    /**
+     * Returns the Courses of the vector in a new array.
+     *
+     * @param length
+     *      Length of the returned array, at least size().
+     *
+     * @return
+     *      A new array holding the Courses in order, followed by null slots.
+     */
+    Course[] toArray(int length) {
+        Course[] array = new Course[length];
+        for(int c = 0, copied = 0; copied < size; c++, copied += CHUNK_SIZE)
+            System.arraycopy(chunks[c], 0, array, copied, Math.min(CHUNK_SIZE, size - copied));
+        return array;
+    }
+
+    /**
+     * Returns the chunk at the given index, copying it first if it is shared.
+     */
+    private Course[] writableChunk(int c) {
+        if(chunkOwners[c] != owner) {
+            writableTable();
+            chunks[c] = chunks[c].clone();
+            chunkOwners[c] = owner;
+        }
+        return chunks[c];
+    }
+
+    /**
+     * Copies the chunk table if it is shared so that its slots can be replaced.
+     */
+    private void writableTable() {
+        if(tableOwner != owner) {
+            chunks = chunks.clone();
+            chunkOwners = new Object[chunks.length];
+            tableOwner = owner;
+        }
+    }
+
+    /**
+     * Allocates an empty chunk owned by this vector at the given slot of the chunk table,
+     * growing the table if necessary.
+     */
+    private void allocateChunk(int c) {
+        writableTable();
+        if(c >= chunks.length) {
+            int newLength = Math.max(c + 1, chunks.length + (chunks.length >> 1));
+            chunks = Arrays.copyOf(chunks, newLength);
+            chunkOwners = Arrays.copyOf(chunkOwners, newLength);
+        }
+        chunks[c] = new Course[CHUNK_SIZE];
+        chunkOwners[c] = owner;
+    }
+}
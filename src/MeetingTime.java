@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+
+/**
+ * The MeetingTime class describes one weekly meeting of a Course: the day of the week and
+ * the minutes of the day at which the meeting starts and ends. Meetings are written as the
+ * days followed by a 24-hour time range, such as "MWF 10:00-10:53" or "TuTh 14:00-15:20",
+ * where the days are M, Tu, W, Th, F, Sa and Su.
+ *
+ * @author Zhen Wei Liao
+ */
+public final class MeetingTime implements Comparable<MeetingTime> {
+    public static final int DAYS = 7;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final MeetingTime[] NONE = new MeetingTime[0];
+
+    private static final String[] DAY_NAMES = {"M", "Tu", "W", "Th", "F", "Sa", "Su"};
+
+    private final int day;
+    private final int start;
+    private final int end;
+
+    /**
+     * Constructor creates a MeetingTime.
+     *
+     * @param day
+     *      The day of the week, from 0 for Monday to 6 for Sunday.
+     *
+     * @param start
+     *      The minute of the day at which the meeting starts.
+     *
+     * @param end
+     *      The minute of the day at which the meeting ends, after start.
+     *
+     * @throws IllegalArgumentException
+     *      when the day or the minutes are not within the valid range.
+     */
+    public MeetingTime(int day, int start, int end) throws IllegalArgumentException {
+        if(day < 0 || day >= DAYS)
+            throw new IllegalArgumentException("Invalid day: " + day);
+        if(start < 0 || end > MINUTES_PER_DAY || start >= end)
+            throw new IllegalArgumentException("Invalid meeting time: " + start + "-" + end);
+
+        this.day = day;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Accessor. Returns the day of the meeting.
+     *
+     * @return
+     *      The day of the week, from 0 for Monday to 6 for Sunday.
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * Accessor. Returns the start of the meeting.
+     *
+     * @return
+     *      The minute of the day at which the meeting starts.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Accessor. Returns the end of the meeting.
+     *
+     * @return
+     *      The minute of the day at which the meeting ends.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Checks if two meetings take place at the same time. Meetings that only touch, one
+     * ending at the minute the other starts, do not overlap.
+     *
+     * @param other
+     *      The meeting to compare with.
+     *
+     * @return
+     *      True if the meetings are on the same day and their times overlap.
+     */
+    public boolean overlaps(MeetingTime other) {
+        return day == other.day && start < other.end && other.start < end;
+    }
+
+    /**
+     * Parses meetings written as groups of days and a time range, separated by commas or
+     * semicolons, such as "MWF 10:00-10:53, TuTh 14:00-15:20".
+     *
+     * @param text
+     *      The meetings to parse. A blank text means no meetings.
+     *
+     * @return
+     *      The meetings, one per day of each group.
+     *
+     * @throws IllegalArgumentException
+     *      when the text is not in the expected format.
+     */
+    public static MeetingTime[] parse(String text) throws IllegalArgumentException {
+        if(text == null || text.isBlank())
+            return NONE;
+
+        ArrayList<MeetingTime> meetings = new ArrayList<>();
+        for(String group : text.split("[,;]")) {
+            String[] parts = group.trim().split("\\s+");
+            String[] times = parts.length == 2 ? parts[1].split("-") : null;
+            if(times == null || times.length != 2)
+                throw new IllegalArgumentException("Invalid meeting time: " + group.trim());
+
+            int start = minutes(times[0]), end = minutes(times[1]);
+            String days = parts[0];
+            for(int i = 0; i < days.length(); ) {
+                int day = -1;
+                for(int d = 0; d < DAYS && day < 0; d++)
+                    if(days.startsWith(DAY_NAMES[d], i))
+                        day = d;
+                if(day < 0)
+                    throw new IllegalArgumentException("Invalid day in meeting time: " + group.trim());
+
+                meetings.add(new MeetingTime(day, start, end));
+                i += DAY_NAMES[day].length();
+            }
+        }
+        return meetings.toArray(NONE);
+    }
+
+    /**
+     * Writes meetings in the format read by parse(), grouping the days that share a time range.
+     *
+     * @param meetings
+     *      The meetings to write.
+     *
+     * @return
+     *      The meetings as text, empty if there are none.
+     */
+    public static String format(MeetingTime[] meetings) {
+        StringBuilder text = new StringBuilder();
+        boolean[] written = new boolean[meetings.length];
+        for(int i = 0; i < meetings.length; i++) {
+            if(written[i])
+                continue;
+            if(text.length() > 0)
+                text.append(", ");
+
+            for(int j = i; j < meetings.length; j++) {
+                if(!written[j] && meetings[j].start == meetings[i].start && meetings[j].end == meetings[i].end) {
+                    text.append(DAY_NAMES[meetings[j].day]);
+                    written[j] = true;
+                }
+            }
+            text.append(' ').append(time(meetings[i].start)).append('-').append(time(meetings[i].end));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Compares meetings by day, then start, then end.
+     *
+     * @param other
+     *      The meeting to compare with.
+     *
+     * @return
+     *      A negative number, zero or a positive number as this meeting comes before, at the
+     *      same time as, or after the other.
+     */
+    @Override
+    public int compareTo(MeetingTime other) {
+        if(day != other.day)
+            return Integer.compare(day, other.day);
+        if(start != other.start)
+            return Integer.compare(start, other.start);
+        return Integer.compare(end, other.end);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this) return true;
+        if(!(obj instanceof MeetingTime)) return false;
+
+        MeetingTime meeting = (MeetingTime) obj;
+        return meeting.day == day && meeting.start == start && meeting.end == end;
+    }
+
+    @Override
+    public int hashCode() {
+        return (day * MINUTES_PER_DAY + start) * MINUTES_PER_DAY + end;
+    }
+
+    /**
+     * Returns the meeting in the format read by parse(), such as "M 10:00-10:53".
+     *
+     * @return
+     *      The String representation of this meeting.
+     */
+    @Override
+    public String toString() {
+        return DAY_NAMES[day] + " " + time(start) + "-" + time(end);
+    }
+
+    /**
+     * Parses a time of day written as hours and minutes, such as "9:05" or "14:30".
+     */
+    private static int minutes(String time) throws IllegalArgumentException {
+        int colon = time.indexOf(':');
+        try {
+            int hours = Integer.parseInt(time.substring(0, colon)), minutes = Integer.parseInt(time.substring(colon + 1));
+            if(hours < 0 || hours > 24 || minutes < 0 || minutes >= 60)
+                throw new IllegalArgumentException("Invalid time: " + time);
+            return hours * 60 + minutes;
+        } catch(NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid time: " + time);
+        }
+    }
+
+    /**
+     * Writes a minute of the day as hours and minutes.
+     */
+    private static String time(int minutes) {
+        int hours = minutes / 60, minute = minutes % 60;
+        return hours + (minute < 10 ? ":0" : ":") + minute;
+    }
+}
@@ -1,25 +1,64 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The Planner class stores an ordered list of Course objects that allows students
  * to insert or remove a Course at any position within the range of the list.
  * The Planner class also contains functions or methods that students can use on the
- * ordered list. Moreover, the Planner class could only record a maximum of 50 courses.
+ * ordered list. The list grows as courses are added; a maximum number of courses may
+ * optionally be configured when the Planner is created. Copies of a Planner share
+ * their storage copy-on-write, so makeCopy() takes constant time and memory.
+ * Course objects are immutable, so copies share them and the Planner can index them
+ * by their information. A Planner is not thread-safe, but one that is no longer
+ * modified may be read by several threads at once; ConcurrentPlanner relies on this
+ * to share copies between threads.
+ * <p>
+ * Courses with meeting times are checked for time conflicts through an interval index.
+ * By default a conflicting Course is still added and the conflict can be queried; a
+ * Planner may instead be set to reject Courses that conflict with the ones it holds.
  *
  * @author Zhen Wei Liao
  */
 public class Planner{
-    public static final int MAX_COURSES = 50;
-    private Course[] courses = new Course[MAX_COURSES];
-    private int numOfCourses = 0;
+    public static final int UNLIMITED = 0;
+    private CourseVector courses = new CourseVector();
+    private int maxCourses = UNLIMITED;
+    private volatile PositionIndex<Course> courseIndex;
+    private volatile PositionIndex<String> departmentIndex;
+    private volatile ConflictIndex conflictIndex;
+    private volatile RangeIndex rangeIndex;
+    private boolean rejectConflicts;
 
     /**
-     * Constructor creates a Planner object with no Course in it.
+     * Constructor creates a Planner object with no Course in it and no limit on
+     * the number of courses.
      *
      */
     public Planner() {
     }
 
+    /**
+     * Constructor creates a Planner object with no Course in it that can hold
+     * at most the given number of courses.
+     *
+     * @param maxCourses
+     *      Maximum number of courses in the Planner, or UNLIMITED for no limit.
+     *
+     * @throws IllegalArgumentException
+     *      when maxCourses is negative.
+     */
+    public Planner(int maxCourses) throws IllegalArgumentException{
+        if(maxCourses < 0)
+            throw new IllegalArgumentException("Error: Max courses can't be negative.");
+        this.maxCourses = maxCourses;
+    }
+
     /**
      * Constructor creates a Planner object using the given attributes.
      *
@@ -30,33 +69,77 @@ public class Planner{
      *      Number of courses in the array.
      *
      * @throws IllegalArgumentException
-     *      when number of courses exceed MAX_COURSES.
+     *      when number of courses exceed the length of the array, or one of the first
+     *      numOfCourses entries is null.
      */
     public Planner(Course[] courses, int numOfCourses) throws IllegalArgumentException{
-        if(courses.length > MAX_COURSES)
-            throw new IllegalArgumentException("Error: Exceeds Max Courses.");
-        this.courses = courses;
-        this.numOfCourses = numOfCourses;
+        if(numOfCourses < 0 || numOfCourses > courses.length)
+            throw new IllegalArgumentException("Error: Invalid number of courses.");
+        checkCourses(courses, numOfCourses);
+        this.courses = new CourseVector(courses, numOfCourses);
     }
 
     /**
-     * Accessor. Returns the array of Course objects.
+     * Accessor. Returns the maximum number of courses the Planner can hold.
      *
      * @return
-     * 		The array of Course objects.
+     * 		The configured maximum, or UNLIMITED if the Planner has no limit.
+     */
+    public int getMaxCourses() {
+        return maxCourses;
+    }
+
+    /**
+     * Accessor. Returns a copy of the Course objects in the Planner.
+     *
+     * @return
+     * 		A new array of the Course objects in order, of length size().
      */
     public Course[] getCourses() {
-        return this.courses;
+        return courses.toArray(courses.size());
     }
 
     /**
-     * Modifier. Modifies the array of Course objects.
+     * Modifier. Replaces the Course objects in the Planner with the ones in the array,
+     * up to its last non-null entry.
      *
      * @param courses
      * 		The array of Course objects.
+     *
+     * @throws IllegalArgumentException
+     * 		when a null entry comes before the last non-null one.
+     */
+    public void setCourses(Course[] courses) throws IllegalArgumentException {
+        int numOfCourses = courses.length;
+        while(numOfCourses > 0 && courses[numOfCourses - 1] == null)
+            numOfCourses--;
+        checkCourses(courses, numOfCourses);
+
+        this.courses = new CourseVector(courses, numOfCourses);
+        clearIndexes();
+    }
+
+    /**
+     * Returns a sequential Stream of the Courses in order. The Stream reads a snapshot
+     * taken when this method is called, in constant time, so changes made to the Planner
+     * afterwards are not seen by it, and it can be consumed while the Planner is changed.
+     *
+     * @return
+     * 		A Stream of the Courses in the Planner.
+     */
+    public Stream<Course> stream() {
+        return StreamSupport.stream(courses.spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel Stream of the Courses in order, reading a snapshot like stream().
+     * The snapshot is split in equal ranges of Courses across the common fork-join pool.
+     *
+     * @return
+     * 		A parallel Stream of the Courses in the Planner.
      */
-    public void setCourses(Course[] courses) {
-        this.courses = courses;
+    public Stream<Course> parallelStream() {
+        return StreamSupport.stream(courses.spliterator(), true);
     }
 
     /**
@@ -69,17 +152,34 @@ public class Planner{
      * 		The number of Courses in the current Planner.
      */
     public int size() {
-        return numOfCourses;
+        return courses.size();
     }
 
     /**
-     * Modifier. Modifies the number of Courses in the current list.
+     * Modifier. Shrinks the current list to the given number of Courses, dropping the
+     * Courses beyond it. The list can't grow this way, since every position must hold a
+     * Course; use addCourse() instead.
      *
      * @param numOfCourses
-     * 		The number of Courses in the Planner.
+     * 		The number of Courses in the Planner, within range 0 <= numOfCourses <= size().
+     *
+     * @throws IllegalArgumentException
+     * 		when numOfCourses is negative or greater than size().
      */
-    public void setSize(int numOfCourses) {
-        this.numOfCourses = numOfCourses;
+    public void setSize(int numOfCourses) throws IllegalArgumentException {
+        if(numOfCourses < 0 || numOfCourses > courses.size())
+            throw new IllegalArgumentException("Error: Invalid number of courses.");
+        courses = new CourseVector(courses.toArray(courses.size()), numOfCourses);
+        clearIndexes();
+    }
+
+    /**
+     * Checks that the first count entries of an array are Courses and not null.
+     */
+    private static void checkCourses(Course[] courses, int count) throws IllegalArgumentException {
+        for(int i = 0; i < count; i++)
+            if(courses[i] == null)
+                throw new IllegalArgumentException("Error: Course at position " + (i + 1) + " can't be null.");
     }
 
     /**
@@ -94,7 +194,7 @@ public class Planner{
      * Preconditions:
      * 		The Course object has been instantiated.
      * 		Position is within range 1 <= position <= items_currently_in_list + 1.
-     * 		The number of Course Objects in the Planner is less than MAX_COURSES.
+     * 		The number of Course Objects in the Planner is less than the configured maximum, if any.
      * <p>
      * Post conditions:
      * 		After adding the new Course to the list on its given position,
@@ -102,42 +202,42 @@ public class Planner{
      * 		given position are moved one unit back.
      *
      * @throws IllegalArgumentException
-     * 		when enter a position that is not within the valid range
+     * 		when enter a position that is not within the valid range, or when the Planner
+     * 		rejects conflicts and the Course meets at the same time as another one
      *
      * @throws FullPlannerException
-     * 		when the number of Courses in the Planner has reach MAX_COURSES
+     * 		when the number of Courses in the Planner has reach the configured maximum
      *
      */
     public void addCourse(Course newCourse, int position) throws IllegalArgumentException, FullPlannerException{
+        int numOfCourses = courses.size();
 
         if(position <= 0 || position > numOfCourses + 1)
             throw new IllegalArgumentException("Invalid input. Position is not within the "
                     + "valid range [1, " + numOfCourses + "]");
 
-        if(numOfCourses == MAX_COURSES)
+        if(maxCourses != UNLIMITED && numOfCourses >= maxCourses) {
+            PlannerMetrics.full();
             throw new FullPlannerException("Planner is full. No more room for additional course.");
-
-        if(numOfCourses == 0) {
-            courses[0] = newCourse;
-            numOfCourses = 1;
-            return;
         }
 
-        Course[] newCourses = new Course[MAX_COURSES];
-        /*
-        Stores all the Courses that are less than the given position into the new array.
-         */
-        System.arraycopy(courses, 0, newCourses, 0, position - 1);
-        /*
-        Stores all the Courses that are originally greater than or equal to the given position
-        into the new array their original position increase by 1.
-         */
-        if (size() - (position - 1) >= 0)
-            System.arraycopy(courses, position - 1, newCourses, position, size() - (position - 1));
+        if(rejectConflicts) {
+            List<Course> conflicts = conflictIndex().conflicts(newCourse);
+            if(!conflicts.isEmpty())
+                throw new IllegalArgumentException("Error: " + newCourse + " conflicts with " + conflicts.get(0) + ".");
+        }
 
-        newCourses[position-1] = newCourse;
-        courses = newCourses;
-        numOfCourses++;
+        courses.insert(position - 1, newCourse);
+
+        if(courseIndex != null)
+            courseIndex.insert(newCourse, position - 1, position <= numOfCourses);
+        if(departmentIndex != null)
+            departmentIndex.insert(newCourse.getDepartment(), position - 1, position <= numOfCourses);
+        if(rangeIndex != null)
+            rangeIndex.insert(newCourse, position - 1, position <= numOfCourses);
+        if(conflictIndex != null)
+            conflictIndex.add(newCourse);
+        PlannerMetrics.added(numOfCourses + 1);
     }
 
     /**
@@ -151,11 +251,11 @@ public class Planner{
      * 		when the position is not within the valid range
      *
      * @throws FullPlannerException
-     * 		when the number of Courses in the Planner has reach MAX_COURSES
+     * 		when the number of Courses in the Planner has reach the configured maximum
      *
      * */
     public void addCourse(Course newCourse) throws IllegalArgumentException, FullPlannerException{
-        addCourse(newCourse, numOfCourses + 1);
+        addCourse(newCourse, courses.size() + 1);
     }
 
     /**
@@ -178,36 +278,135 @@ public class Planner{
      *
      */
     public void removeCourse(int position) throws IllegalArgumentException {
-        if(numOfCourses == 0)
-            throw new IllegalArgumentException("Error: Planner is empty.");
-
-        if(position <= 0 || position > numOfCourses)
-            throw new IllegalArgumentException("Invalid: Position is not within the "
-                    + "valid range [1, " + numOfCourses + "]");
+        checkPosition(position);
+        int numOfCourses = courses.size();
+
+        Course removedCourse = courses.remove(position - 1);
+
+        if(courseIndex != null)
+            courseIndex.remove(removedCourse, position - 1, position < numOfCourses);
+        if(departmentIndex != null)
+            departmentIndex.remove(removedCourse.getDepartment(), position - 1, position < numOfCourses);
+        if(rangeIndex != null)
+            rangeIndex.remove(removedCourse, position - 1, position < numOfCourses);
+        if(conflictIndex != null)
+            conflictIndex.remove(removedCourse);
+        PlannerMetrics.removed(numOfCourses - 1);
+    }
 
-        if(numOfCourses == 1){
-            courses[0] = null;
-            numOfCourses = 0;
+    /**
+     * Moves a Course to another position. The Courses between the two positions move one
+     * position toward the old position of the Course, and no other Course is affected.
+     *
+     * @param from
+     * 		The current position of the Course, within range 1 <= from <= size().
+     *
+     * @param to
+     * 		The new position of the Course, within range 1 <= to <= size().
+     *
+     * @throws IllegalArgumentException
+     * 		when either position is not within the valid range.
+     */
+    public void moveCourse(int from, int to) throws IllegalArgumentException {
+        checkPosition(from);
+        checkPosition(to);
+        if(from == to)
             return;
+
+        Course moved = courses.get(from - 1);
+        courses.move(from - 1, to - 1);
+
+        if(courseIndex != null) {
+            courseIndex.remove(moved, from - 1, true);
+            courseIndex.insert(moved, to - 1, true);
         }
+        if(departmentIndex != null) {
+            departmentIndex.remove(moved.getDepartment(), from - 1, true);
+            departmentIndex.insert(moved.getDepartment(), to - 1, true);
+        }
+        if(rangeIndex != null) {
+            rangeIndex.remove(moved, from - 1, true);
+            rangeIndex.insert(moved, to - 1, true);
+        }
+    }
 
-        Course[] newCourses = new Course[MAX_COURSES];
+    /**
+     * Exchanges the positions of two Courses.
+     *
+     * @param first
+     * 		The position of one Course, within range 1 <= first <= size().
+     *
+     * @param second
+     * 		The position of the other Course, within range 1 <= second <= size().
+     *
+     * @throws IllegalArgumentException
+     * 		when either position is not within the valid range.
+     */
+    public void swap(int first, int second) throws IllegalArgumentException {
+        checkPosition(first);
+        checkPosition(second);
+        if(first == second)
+            return;
 
-        /*
-        Stores all the Courses that are less than the given position into the new array
-         */
-        System.arraycopy(courses, 0, newCourses, 0, position - 1);
+        Course a = courses.get(first - 1), b = courses.get(second - 1);
+        courses.set(first - 1, b);
+        courses.set(second - 1, a);
+
+        if(courseIndex != null) {
+            courseIndex.remove(a, first - 1, false);
+            courseIndex.remove(b, second - 1, false);
+            courseIndex.insert(a, second - 1, false);
+            courseIndex.insert(b, first - 1, false);
+        }
+        if(departmentIndex != null) {
+            departmentIndex.remove(a.getDepartment(), first - 1, false);
+            departmentIndex.remove(b.getDepartment(), second - 1, false);
+            departmentIndex.insert(a.getDepartment(), second - 1, false);
+            departmentIndex.insert(b.getDepartment(), first - 1, false);
+        }
+        if(rangeIndex != null) {
+            rangeIndex.remove(a, first - 1, false);
+            rangeIndex.remove(b, second - 1, false);
+            rangeIndex.insert(a, second - 1, false);
+            rangeIndex.insert(b, first - 1, false);
+        }
+    }
+
+    /**
+     * Reorders the Courses with a comparator. The sort is stable, so Courses that compare
+     * as equal keep their relative order.
+     *
+     * @param comparator
+     * 		The order of the Courses.
+     */
+    public void sort(Comparator<? super Course> comparator) {
+        Course[] sorted = courses.toArray(courses.size());
+        Arrays.sort(sorted, comparator);
+        courses.replaceAll(sorted);
+
+        courseIndex = null;
+        departmentIndex = null;
+        rangeIndex = null;
+    }
 
-        /*
-        Stores all the Courses that are originally greater than or equal to the given position
-        into the new array with their original position decrease by 1.
-        */
-        if (size() - (position - 1) >= 0)
-            System.arraycopy(courses, position - 1 + 1, newCourses, position - 1, size() - (position - 1));
+    /**
+     * Checks that a position holds a Course.
+     *
+     * @param position
+     * 		The position to check.
+     *
+     * @throws IllegalArgumentException
+     * 		when the Planner is empty or the position is not within the valid range.
+     */
+    private void checkPosition(int position) throws IllegalArgumentException {
+        int numOfCourses = courses.size();
 
-        courses = newCourses;
+        if(numOfCourses == 0)
+            throw new IllegalArgumentException("Error: Planner is empty.");
 
-        numOfCourses--;
+        if(position <= 0 || position > numOfCourses)
+            throw new IllegalArgumentException("Invalid: Position is not within the "
+                    + "valid range [1, " + numOfCourses + "]");
     }
 
     /**
@@ -228,14 +427,8 @@ public class Planner{
      *
      */
     public Course getCourse(int position) throws IllegalArgumentException{
-        if(numOfCourses == 0)
-            throw new IllegalArgumentException("Error: Planner is empty.");
-
-        if(position <= 0 || position > numOfCourses + 1)
-            throw new IllegalArgumentException("Invalid: Position is not within the "
-                    + "valid range [1, " + numOfCourses + "]");
-
-        return courses[position - 1];
+        checkPosition(position);
+        return courses.get(position - 1);
     }
 
     /**
@@ -245,9 +438,7 @@ public class Planner{
      * 		Header of the table.
      */
     public static String header() {
-        return String.format("%-5s%-25s%-12s%-6s%-9s%-30s", "No.",
-                "Course Name", "Department","Code", "Section", "Instructor") + "\n"
-                + "-".repeat(82) + "\n";
+        return TableRenderer.HEADER;
     }
 
     /**
@@ -257,12 +448,51 @@ public class Planner{
      *      Rows of the table.
      */
     public static String row(Course course, int position) {
-        return String.format("%-5d%-25s%-12s%-11d%-4s%-30s", position,
-                course.getName(),
-                course.getDepartment(),
-                course.getCode(),
-                ((course.getSection() < 10) ? "0" : "") + course.getSection(),
-                course.getInstructor()) + "\n";
+        StringBuilder row = new StringBuilder(TableRenderer.ROW_LENGTH);
+        try {
+            TableRenderer.row(row, course, position);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+
+    /**
+     * Writes a neatly formatted table of each Course in the Planner with its position number.
+     *
+     * @param out
+     *      The destination of the table, such as a StringBuilder or a Writer.
+     *
+     * @throws IOException
+     *      when the destination fails to accept the table.
+     */
+    public void writeTable(Appendable out) throws IOException {
+        TableRenderer.header(out);
+        for(int i = 0; i < courses.size(); i++)
+            if(courses.get(i) != null)
+                TableRenderer.row(out, courses.get(i), i + 1);
+    }
+
+    /**
+     * Writes a neatly formatted table of the Courses at the given positions.
+     *
+     * @param out
+     *      The destination of the table, such as a StringBuilder or a Writer.
+     *
+     * @param positions
+     *      The positions (1 <= position <= size()) of the Courses to write, in the order they
+     *      are shown. The positions are kept as the preference numbers in the table.
+     *
+     * @throws IOException
+     *      when the destination fails to accept the table.
+     *
+     * @throws IllegalArgumentException
+     *      when a position is not within the valid range.
+     */
+    public void writeTable(Appendable out, int[] positions) throws IOException, IllegalArgumentException {
+        TableRenderer.header(out);
+        for(int position : positions)
+            TableRenderer.row(out, getCourse(position), position);
     }
 
     /**
@@ -284,19 +514,243 @@ public class Planner{
      */
     public static void filter(Planner planner, String department) {
 
-        StringBuilder table = new StringBuilder(header());
+        int[] positions = planner.filter(department);
+        StringBuilder table = new StringBuilder(header().length() + positions.length * TableRenderer.ROW_LENGTH);
+        try {
+            planner.writeTable(table, positions);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        System.out.println(table);
+    }
+
+    /**
+     * Returns the preference numbers of the Courses with the same department. Unless the
+     * StringPool is full, a department missing from it cannot belong to any Course, so it is
+     * rejected without consulting the index.
+     *
+     * @param department
+     * 		The department code of a Course to look for.
+     * <p>
+     * Preconditions:
+     * 		The Planner object has been instantiated.
+     *
+     * @return
+     * 		The positions (1 <= position <= size()) of the matching Courses in ascending order,
+     * 		empty if no Course in the Planner belongs to the department.
+     *
+     */
+    public int[] filter(String department) {
+        String pooled = StringPool.lookup(department);
+        if(pooled == null && department != null && !StringPool.isFull())
+            return new int[0];
+
+        int[] positions = departmentIndex().positions(pooled != null ? pooled : department);
+        for(int i = 0; i < positions.length; i++)
+            positions[i]++;
+        return positions;
+    }
+
+    /**
+     * Returns the preference numbers of the Courses of a department whose code is within a
+     * range, such as every CSE Course from 300 to 399. The Courses are found through an
+     * index sorted by department, code and section, in time proportional to the logarithm
+     * of size() plus the number of matches.
+     *
+     * @param department
+     * 		The department code of the Courses to look for.
+     *
+     * @param minCode
+     * 		The smallest code of the range.
+     *
+     * @param maxCode
+     * 		The largest code of the range.
+     *
+     * @return
+     * 		The positions (1 <= position <= size()) of the matching Courses ordered by code,
+     * 		then section, then position. Empty if no Course matches.
+     *
+     * @throws IllegalArgumentException
+     * 		when minCode is greater than maxCode.
+     */
+    public int[] range(String department, int minCode, int maxCode) throws IllegalArgumentException {
+        if(minCode > maxCode)
+            throw new IllegalArgumentException("Invalid code range: " + minCode + " > " + maxCode);
+
+        int[] positions = rangeIndex().range(department, minCode, maxCode);
+        for(int i = 0; i < positions.length; i++)
+            positions[i]++;
+        return positions;
+    }
+
+    /**
+     * Returns the preference numbers of the Courses of a department at a level, such as
+     * the 300 level, which holds the codes from 300 to 399.
+     *
+     * @param department
+     * 		The department code of the Courses to look for.
+     *
+     * @param level
+     * 		The level, a positive multiple of 100.
+     *
+     * @return
+     * 		The positions (1 <= position <= size()) of the matching Courses ordered by code,
+     * 		then section, then position. Empty if no Course matches.
+     *
+     * @throws IllegalArgumentException
+     * 		when the level is not a positive multiple of 100.
+     */
+    public int[] level(String department, int level) throws IllegalArgumentException {
+        if(level <= 0 || level % 100 != 0)
+            throw new IllegalArgumentException("Invalid level. Level must be a positive multiple of 100.");
+        return range(department, level, level + 99);
+    }
 
-        for(int i = 1; i < MAX_COURSES + 1; i++) {
-            Course currCourse = planner.courses[i - 1];
+    /**
+     * Counts the Courses of a department whose code is within a range without listing them.
+     *
+     * @param department
+     * 		The department code of the Courses to count.
+     *
+     * @param minCode
+     * 		The smallest code of the range.
+     *
+     * @param maxCode
+     * 		The largest code of the range.
+     *
+     * @return
+     * 		The number of matching Courses, 0 if minCode is greater than maxCode.
+     */
+    public int count(String department, int minCode, int maxCode) {
+        return rangeIndex().count(department, minCode, maxCode);
+    }
 
-            if(currCourse == null) break;
+    /**
+     * Discards the indexes so that they are rebuilt from the array on next use.
+     */
+    private void clearIndexes() {
+        courseIndex = null;
+        departmentIndex = null;
+        conflictIndex = null;
+        rangeIndex = null;
+    }
 
-            if(currCourse.getDepartment().equals(department)) {
-                table.append(row(currCourse, i));
-            }
+    /**
+     * Returns the index of the departments in the Planner, building it on first use.
+     * Once built, the index is kept in sync by addCourse() and removeCourse(). The index is
+     * filled before it is published, so threads reading an unmodified Planner at once only
+     * risk building it twice.
+     *
+     * @return
+     * 		The index mapping each department to the positions of its Courses in the Planner.
+     */
+    private PositionIndex<String> departmentIndex() {
+        PositionIndex<String> index = departmentIndex;
+        if(index == null) {
+            index = new PositionIndex<>();
+            for(int i = 0; i < courses.size(); i++)
+                index.insert(courses.get(i).getDepartment(), i, false);
+            departmentIndex = index;
         }
+        return index;
+    }
 
-        System.out.println(table);
+    /**
+     * Returns the index of the Courses in the Planner, building it on first use.
+     * Once built, the index is kept in sync by addCourse() and removeCourse().
+     *
+     * @return
+     * 		The index mapping each Course to its positions in the Planner.
+     */
+    private PositionIndex<Course> courseIndex() {
+        PositionIndex<Course> index = courseIndex;
+        if(index == null) {
+            index = new PositionIndex<>();
+            for(int i = 0; i < courses.size(); i++)
+                index.insert(courses.get(i), i, false);
+            courseIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the Courses in the Planner sorted by department, code and section,
+     * building it on first use. Once built, the index is kept in sync by addCourse() and
+     * removeCourse().
+     *
+     * @return
+     * 		The index of the Courses by department and code.
+     */
+    private RangeIndex rangeIndex() {
+        RangeIndex index = rangeIndex;
+        if(index == null) {
+            index = RangeIndex.of(courses.toArray(courses.size()), courses.size());
+            rangeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of the meeting times in the Planner, building it on first use.
+     * Once built, the index is kept in sync by addCourse() and removeCourse().
+     *
+     * @return
+     * 		The index of the meetings of the Courses in the Planner.
+     */
+    private ConflictIndex conflictIndex() {
+        ConflictIndex index = conflictIndex;
+        if(index == null) {
+            index = new ConflictIndex();
+            for(int i = 0; i < courses.size(); i++)
+                index.add(courses.get(i));
+            conflictIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Accessor. Returns whether the Planner rejects Courses that conflict with the ones it holds.
+     *
+     * @return
+     * 		True if conflicting Courses are rejected, false if they are added.
+     */
+    public boolean isRejectConflicts() {
+        return rejectConflicts;
+    }
+
+    /**
+     * Modifier. Sets whether the Planner rejects Courses that conflict with the ones it holds.
+     *
+     * @param rejectConflicts
+     * 		True to reject conflicting Courses, false to add them.
+     */
+    public void setRejectConflicts(boolean rejectConflicts) {
+        this.rejectConflicts = rejectConflicts;
+    }
+
+    /**
+     * Returns the Courses in the Planner that meet at the same time as the given Course.
+     *
+     * @param course
+     * 		The Course to check.
+     *
+     * @return
+     * 		The conflicting Courses other than the given one, empty if there is no conflict.
+     */
+    public List<Course> conflicts(Course course) {
+        return conflictIndex().conflicts(course);
+    }
+
+    /**
+     * Returns every pair of Courses in the Planner that meet at the same time.
+     *
+     * @return
+     * 		The conflicting pairs, each an array of the two Courses, in order of their first
+     * 		overlap during the week.
+     */
+    public List<Course[]> conflictingPairs() {
+        return conflictIndex().pairs();
     }
 
     /**
@@ -313,7 +767,7 @@ public class Planner{
      *
      */
     public boolean exists(Course course) {
-        return Arrays.asList(courses).contains(course);
+        return courseIndex().contains(course);
     }
 
     /**
@@ -326,28 +780,40 @@ public class Planner{
      * 		The index of the desired Course if the Course exist, -1 otherwise.
      *
      */
-    public int index(Course course) { return Arrays.asList(courses).indexOf(course); }
+    public int index(Course course) {
+        return courseIndex().first(course);
+    }
 
 
     /**
      * Returns a copy of the Planner object. Subsequent changes to the copy will not affect
-     * the original and vice versa.
+     * the original and vice versa. The copy shares its storage with the original until
+     * either of them is modified, so it is made in constant time and memory.
      *
      * @return clonePlanner
      * 		The copy of the current Planner object
      * */
     public Planner makeCopy() {
-        Planner clonePlanner = new Planner();
-
-        Course[] cloneCourses = new Course[MAX_COURSES];
+        Planner clonePlanner = new Planner(maxCourses);
+        clonePlanner.rejectConflicts = rejectConflicts;
 
-        if (numOfCourses >= 0) System.arraycopy(courses, 0, cloneCourses, 0, numOfCourses);
-
-        clonePlanner.setCourses(cloneCourses);
-        clonePlanner.setSize(numOfCourses);
+        clonePlanner.courses = courses.snapshot();
         return clonePlanner;
     }
 
+    /**
+     * Replaces the Courses in the Planner with the ones in the given Planner. Both Planner
+     * objects share their storage until either of them is modified, so the replacement is
+     * made in constant time and memory. The configured maximum of this Planner is kept.
+     *
+     * @param snapshot
+     *      The Planner whose Courses replace the current ones.
+     */
+    public void restore(Planner snapshot) {
+        courses = snapshot.courses.snapshot();
+        clearIndexes();
+    }
+
     /**
      * Prints a neatly formatted table of each item in the list with its position number by calling
      * the toString() method.
@@ -375,9 +841,7 @@ public class Planner{
      */
     public void printCourse(Course course) {
         int position = index(course) + 1;
-        String table = header() + row(course, position);
-
-        System.out.println(table);
+        System.out.println(header() + row(course, position));
     }
 
     /**
@@ -390,12 +854,12 @@ public class Planner{
      * */
     @Override
     public String toString() {
-        StringBuilder table = new StringBuilder(header());
-
-        for(int i = 0; i < numOfCourses; i++)
-            if(courses[i] != null) {
-                table.append(row(courses[i], i + 1));
-            }
+        StringBuilder table = new StringBuilder(header().length() + courses.size() * TableRenderer.ROW_LENGTH);
+        try {
+            writeTable(table);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return table.toString();
     }
 
@@ -419,9 +883,12 @@ public class Planner{
 
         Planner planObj = (Planner) obj;
 
-        if(planObj.courses.length != MAX_COURSES || planObj.numOfCourses != this.numOfCourses) return false;
+        if(planObj.size() != this.size()) return false;
+
+        for(int i = 0; i < size(); i++)
+            if(!Objects.equals(this.courses.get(i), planObj.courses.get(i))) return false;
 
-        return Arrays.equals(this.courses, ((Planner) obj).courses);
+        return true;
 
     }
 }
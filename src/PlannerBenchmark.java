@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * The PlannerBenchmark class measures the hot paths of Planner and Course over Planners of
+ * several sizes, and writes the results as CSV so that runs on different commits can be
+ * compared line by line.
+ * <p>
+ * Every benchmark runs a batch of operations between two readings of the clock, repeated until
+ * the iteration time is spent, first for the warmup iterations and then for the measured ones.
+ * Operations that change the Planner are undone after each batch, outside of the measurement,
+ * so every batch starts from a Planner of the same size. Next to the time per operation, the
+ * bytes the thread allocated and the garbage collections that ran are recorded, when the
+ * runtime reports them.
+ * <p>
+ * The arguments are "--sizes 10,100,1000,10000,100000", "--warmup 3", "--iterations 5",
+ * "--time MILLISECONDS" (default 200) per iteration, "--only TEXT" to run the benchmarks
+ * whose name contains TEXT, and "--out FILE" (default "benchmark.csv").
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerBenchmark {
+    public static final String CSV_HEADER = "benchmark,size,ns_per_op,ns_error,bytes_per_op,gc_count,gc_ms,operations";
+    private static final String[] DEPARTMENTS = {"AMS", "BIO", "CHE", "CSE", "ECO", "ESE", "ISE", "MAT", "PHY", "WRT"};
+    private static final int POSITIONS = 1024;
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    /**
+     * Prevents the results of the measured operations from being optimized away.
+     */
+    static volatile long sink;
+
+    /**
+     * The state of one benchmark over a Planner of a given size.
+     */
+    private abstract static class Case {
+        final Planner planner;
+        final Course[] courses, copies;
+        final int[] positions = new int[POSITIONS];
+        final int size;
+        long result;
+
+        Case(int size) {
+            this.size = size;
+            courses = new Course[size];
+            copies = new Course[size];
+            Random random = new Random(size);
+            for(int i = 0; i < size; i++) {
+                String department = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+                int code = 100 + random.nextInt(400);
+                byte section = (byte) (1 + random.nextInt(9));
+                courses[i] = new Course("Course " + i, department, code, section, "Instructor " + i % 97);
+                copies[i] = new Course("Course " + i, department, code, section, "Instructor " + i % 97);
+            }
+            planner = new Planner(courses, size);
+            for(int i = 0; i < POSITIONS; i++)
+                positions[i] = 1 + random.nextInt(size);
+        }
+
+        /**
+         * Returns the number of operations run between two readings of the clock.
+         */
+        int batch() {
+            return 128;
+        }
+
+        /**
+         * Runs the measured operations.
+         */
+        abstract void measure(int operations) throws Exception;
+
+        /**
+         * Undoes the changes of measure(), outside of the measurement.
+         */
+        void reset(int operations) throws Exception {
+        }
+    }
+
+    /**
+     * A benchmark that adds and removes Courses. Its batches are limited to half the size of
+     * the Planner, so the size stays within a factor of two and the middle stays in range.
+     */
+    private abstract static class Change extends Case {
+        Change(int size) {
+            super(size);
+        }
+
+        @Override
+        int batch() {
+            return Math.max(1, Math.min(size / 2, 128));
+        }
+    }
+
+    /**
+     * A named benchmark and the state it needs for each size.
+     */
+    private static final class Benchmark {
+        final String name;
+        final IntFunction<Case> setUp;
+
+        Benchmark(String name, IntFunction<Case> setUp) {
+            this.name = name;
+            this.setUp = setUp;
+        }
+    }
+
+    private static final List<Benchmark> BENCHMARKS = List.of(
+            new Benchmark("addCourse.head", size -> new Change(size) {
+                void measure(int n) throws Exception { for(int i = 0; i < n; i++) planner.addCourse(courses[i], 1); }
+                void reset(int n) { for(int i = 0; i < n; i++) planner.removeCourse(1); }
+            }),
+            new Benchmark("addCourse.middle", size -> new Change(size) {
+                void measure(int n) throws Exception { for(int i = 0; i < n; i++) planner.addCourse(courses[i], size / 2 + 1); }
+                void reset(int n) { for(int i = 0; i < n; i++) planner.removeCourse(size / 2 + 1); }
+            }),
+            new Benchmark("addCourse.tail", size -> new Change(size) {
+                void measure(int n) throws Exception { for(int i = 0; i < n; i++) planner.addCourse(courses[i], size + i + 1); }
+                void reset(int n) { for(int i = 0; i < n; i++) planner.removeCourse(size + 1); }
+            }),
+            new Benchmark("removeCourse.head", size -> new Change(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) planner.removeCourse(1); }
+                void reset(int n) throws Exception { for(int i = n - 1; i >= 0; i--) planner.addCourse(courses[i], 1); }
+            }),
+            new Benchmark("removeCourse.middle", size -> new Change(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) planner.removeCourse(size / 2); }
+                void reset(int n) throws Exception { for(int i = 0; i < n; i++) planner.addCourse(courses[i], size / 2); }
+            }),
+            new Benchmark("removeCourse.tail", size -> new Change(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) planner.removeCourse(size - i); }
+                void reset(int n) throws Exception { for(int i = 0; i < n; i++) planner.addCourse(courses[i], size - n + i + 1); }
+            }),
+            new Benchmark("getCourse", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.getCourse(positions[i & (POSITIONS - 1)]).getCode(); }
+            }),
+            new Benchmark("exists", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.exists(copies[positions[i & (POSITIONS - 1)] - 1]) ? 1 : 0; }
+            }),
+            new Benchmark("index", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.index(copies[positions[i & (POSITIONS - 1)] - 1]); }
+            }),
+            new Benchmark("filter", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.filter(DEPARTMENTS[i % DEPARTMENTS.length]).length; }
+            }),
+            new Benchmark("level", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.level(DEPARTMENTS[i % DEPARTMENTS.length], 100 + i % 4 * 100).length; }
+            }),
+            new Benchmark("makeCopy", size -> new Case(size) {
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.makeCopy().size(); }
+            }),
+            new Benchmark("toString", size -> new Case(size) {
+                int batch() { return Math.max(1, 4096 / size); }
+                void measure(int n) { for(int i = 0; i < n; i++) result += planner.toString().length(); }
+            }),
+            new Benchmark("row", size -> new Case(size) {
+                void measure(int n) {
+                    for(int i = 0; i < n; i++) {
+                        int position = positions[i & (POSITIONS - 1)];
+                        result += Planner.row(courses[position - 1], position).length();
+                    }
+                }
+            }),
+            new Benchmark("Course.equals", size -> new Case(size) {
+                void measure(int n) {
+                    for(int i = 0; i < n; i++) {
+                        int a = positions[i & (POSITIONS - 1)] - 1, b = positions[(i + 1) & (POSITIONS - 1)] - 1;
+                        result += (courses[a].equals(copies[a]) ? 1 : 0) + (courses[a].equals(copies[b]) ? 1 : 0);
+                    }
+                }
+            }));
+
+    /**
+     * The measurements of one benchmark at one size.
+     */
+    private static final class Result {
+        double nanosPerOperation, nanosError, bytesPerOperation;
+        long gcCount, gcMillis, operations;
+    }
+
+    /**
+     * Runs the benchmarks and writes the results.
+     *
+     * @param args
+     *      The command line arguments.
+     *
+     * @throws Exception
+     *      when a benchmark fails or the results cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10, 100, 1000, 10000, 100000};
+        int warmup = 3, iterations = 5;
+        long millis = 200;
+        String only = "";
+        Path out = Path.of("benchmark.csv");
+        for(int i = 0; i + 1 < args.length; i++) {
+            switch(args[i]) {
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--iterations" -> iterations = Integer.parseInt(args[++i]);
+                case "--time" -> millis = Long.parseLong(args[++i]);
+                case "--only" -> only = args[++i];
+                case "--out" -> out = Path.of(args[++i]);
+                default -> { }
+            }
+        }
+        if(iterations < 1 || warmup < 0 || millis <= 0)
+            throw new IllegalArgumentException("Error: Iterations and time must be positive.");
+
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        System.out.printf(Locale.ROOT, "%-22s%9s%14s%12s%14s%6s%n", "Benchmark", "Size", "ns/op", "error", "bytes/op", "GCs");
+        for(Benchmark benchmark : BENCHMARKS) {
+            if(!benchmark.name.contains(only))
+                continue;
+            for(int size : sizes) {
+                Result result = run(benchmark.setUp.apply(size), warmup, iterations, millis * 1_000_000);
+                System.out.printf(Locale.ROOT, "%-22s%9d%14.1f%12.1f%14.1f%6d%n", benchmark.name, size,
+                        result.nanosPerOperation, result.nanosError, result.bytesPerOperation, result.gcCount);
+                lines.add(String.format(Locale.ROOT, "%s,%d,%.2f,%.2f,%.1f,%d,%d,%d", benchmark.name, size,
+                        result.nanosPerOperation, result.nanosError, result.bytesPerOperation,
+                        result.gcCount, result.gcMillis, result.operations));
+            }
+        }
+
+        write(out, lines);
+        System.out.println("Results written to " + out + ".");
+    }
+
+    /**
+     * Runs the warmup and measured iterations of a benchmark. The error is half the width of
+     * the 95% confidence interval of the mean over the measured iterations.
+     */
+    private static Result run(Case state, int warmup, int iterations, long nanos) throws Exception {
+        int batch = state.batch();
+        double[] perIteration = new double[iterations];
+        long allocated = 0, operations = 0, gcCount = 0, gcMillis = 0;
+
+        for(int iteration = -warmup; iteration < iterations; iteration++) {
+            long elapsed = 0, count = 0, bytes = 0;
+            long gcBefore = gcCount(), gcTimeBefore = gcMillis();
+            while(elapsed < nanos) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                state.measure(batch);
+                elapsed += System.nanoTime() - start;
+                bytes += allocatedBytes() - allocatedBefore;
+                count += batch;
+                state.reset(batch);
+            }
+
+            if(iteration >= 0) {
+                perIteration[iteration] = (double) elapsed / count;
+                allocated += bytes;
+                operations += count;
+                gcCount += gcCount() - gcBefore;
+                gcMillis += gcMillis() - gcTimeBefore;
+            }
+        }
+        sink += state.result;
+
+        Result result = new Result();
+        double mean = Arrays.stream(perIteration).average().orElse(0);
+        double variance = 0;
+        for(double value : perIteration)
+            variance += (value - mean) * (value - mean);
+        result.nanosPerOperation = mean;
+        result.nanosError = iterations > 1 ? 1.96 * Math.sqrt(variance / (iterations - 1) / iterations) : 0;
+        result.bytesPerOperation = ALLOCATION == null ? -1 : (double) allocated / operations;
+        result.gcCount = gcCount;
+        result.gcMillis = gcMillis;
+        result.operations = operations;
+        return result;
+    }
+
+    /**
+     * Returns the bean reporting the bytes allocated by a thread, or null if the runtime does
+     * not support it. Results are then written with -1 bytes per operation.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!(threads instanceof com.sun.management.ThreadMXBean))
+            return null;
+
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        if(!allocation.isThreadAllocatedMemorySupported())
+            return null;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+        return allocation;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION == null ? 0 : ALLOCATION.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, collector.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(0, collector.getCollectionTime());
+        return millis;
+    }
+
+    /**
+     * Writes the lines of the CSV file.
+     */
+    private static void write(Path out, List<String> lines) throws IOException {
+        try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out, StandardCharsets.UTF_8))) {
+            for(String line : lines)
+                writer.println(line);
+        }
+    }
+}
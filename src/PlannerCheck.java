@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * The PlannerCheck class runs regression cases for Planner operations that once failed on
+ * unusual input. Each case prints its name and whether it passed; the program exits with
+ * status 1 if any case fails, so it can be run after a change like ConcurrentPlannerStress.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerCheck {
+    private static int failures;
+
+    /**
+     * Runs every case.
+     *
+     * @param args
+     *      Not used.
+     */
+    public static void main(String[] args) {
+        check("setSize() can't leave empty positions", PlannerCheck::setSizeRejectsGrowth);
+        check("setSize() shrinks and keeps the indexes in sync", PlannerCheck::setSizeShrinks);
+        check("Planner(Course[], int) rejects null Courses", PlannerCheck::constructorRejectsNull);
+        check("setCourses() rejects null Courses before the last one", PlannerCheck::setCoursesRejectsGaps);
+
+        if(failures > 0) {
+            System.out.println("Error: " + failures + " case(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("All cases passed.");
+    }
+
+    /**
+     * A case returns a description of what went wrong, or null if it passed.
+     */
+    private interface Case {
+        String run() throws Exception;
+    }
+
+    /**
+     * Runs one case and prints its result.
+     */
+    private static void check(String name, Case test) {
+        String failure;
+        try {
+            failure = test.run();
+        } catch(Exception e) {
+            failure = "threw " + e;
+        }
+        if(failure == null) {
+            System.out.println("ok    " + name);
+        } else {
+            failures++;
+            System.out.println("FAIL  " + name + ": " + failure);
+        }
+    }
+
+    /**
+     * Returns a Course of the given department and code.
+     */
+    private static Course course(String department, int code) {
+        return new Course("Course " + code, department, code, (byte) 1, "Instructor");
+    }
+
+    /**
+     * Growing a Planner through setSize() used to leave null positions that made filter() throw.
+     */
+    private static String setSizeRejectsGrowth() throws Exception {
+        Planner planner = new Planner();
+        planner.addCourse(course("CSE", 214));
+        try {
+            planner.setSize(3);
+            return "grew to " + planner.size() + " courses";
+        } catch(IllegalArgumentException expected) {
+            // The Planner keeps its Course, so lookups still work.
+        }
+        if(planner.size() != 1 || !Arrays.equals(planner.filter("CSE"), new int[]{1}))
+            return "filter() returned " + Arrays.toString(planner.filter("CSE")) + " for size " + planner.size();
+        return null;
+    }
+
+    /**
+     * Shrinking a Planner must drop the Courses beyond the new size from its indexes.
+     */
+    private static String setSizeShrinks() throws Exception {
+        Planner planner = new Planner();
+        planner.addCourse(course("CSE", 214));
+        planner.addCourse(course("AMS", 161));
+        planner.addCourse(course("CSE", 320));
+        planner.filter("CSE");
+        planner.setSize(2);
+        if(planner.size() != 2 || !Arrays.equals(planner.filter("CSE"), new int[]{1}))
+            return "filter() returned " + Arrays.toString(planner.filter("CSE")) + " for size " + planner.size();
+        if(planner.exists(course("CSE", 320)))
+            return "a dropped Course still exists";
+        return null;
+    }
+
+    /**
+     * The array constructor must not accept null positions.
+     */
+    private static String constructorRejectsNull() {
+        try {
+            new Planner(new Course[]{course("CSE", 214), null, null}, 3);
+            return "accepted null Courses";
+        } catch(IllegalArgumentException expected) {
+            return null;
+        }
+    }
+
+    /**
+     * setCourses() ignores trailing nulls but must not accept a null before the last Course.
+     */
+    private static String setCoursesRejectsGaps() {
+        Planner planner = new Planner();
+        planner.setCourses(new Course[]{course("CSE", 214), null});
+        if(planner.size() != 1)
+            return "trailing null counted, size " + planner.size();
+        try {
+            planner.setCourses(new Course[]{null, course("CSE", 214)});
+            return "accepted a null Course before the last one";
+        } catch(IllegalArgumentException expected) {
+            return null;
+        }
+    }
+}
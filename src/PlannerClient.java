@@ -0,0 +1,173 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PlannerClient class sends requests to a PlannerServer and returns its replies. Run on
+ * its own, it either forwards lines typed on standard input to a server, or drives a server
+ * with many concurrent clients to check how it holds up under load.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * Constructor connects to a PlannerServer.
+     *
+     * @param host
+     *      The host of the server.
+     *
+     * @param port
+     *      The port of the server.
+     *
+     * @throws IOException
+     *      when the connection cannot be made.
+     */
+    public PlannerClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a request and waits for its reply.
+     *
+     * @param command
+     *      The command of the request, such as "A" or "P".
+     *
+     * @param arguments
+     *      The arguments of the command, in the order listed by PlannerServer. Arguments
+     *      must not contain tabs or line breaks.
+     *
+     * @return
+     *      The output of the command, each line ending with a line break.
+     *
+     * @throws IOException
+     *      when the connection fails or is closed by the server.
+     */
+    public String send(String command, Object... arguments) throws IOException {
+        StringBuilder request = new StringBuilder(command);
+        for(Object argument : arguments)
+            request.append('\t').append(argument);
+        out.append(request).append('\n');
+        out.flush();
+
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while(!PlannerServer.END.equals(line = in.readLine())) {
+            if(line == null)
+                throw new EOFException("Error: Connection closed by the server.");
+            reply.append(line).append('\n');
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException
+     *      when the connection cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Connects to a PlannerServer on the local machine. With "--load CLIENTS REQUESTS", opens
+     * CLIENTS connections at once, each acting for its own student, sends REQUESTS additions
+     * and reads on each, and prints the throughput. Otherwise forwards each line of standard
+     * input, with arguments separated by tabs, and prints the replies. The port is set with
+     * "--port N" (default 7070).
+     *
+     * @param args
+     *      The command line arguments.
+     *
+     * @throws Exception
+     *      when the server cannot be reached or a load client fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = PlannerServer.DEFAULT_PORT, clients = 0, requests = 0;
+        for(int i = 0; i < args.length; i++) {
+            if(args[i].equals("--port") && i + 1 < args.length)
+                port = Integer.parseInt(args[++i]);
+            else if(args[i].equals("--load") && i + 2 < args.length) {
+                clients = Integer.parseInt(args[++i]);
+                requests = Integer.parseInt(args[++i]);
+            }
+        }
+
+        if(clients > 0) {
+            load(port, clients, requests);
+            return;
+        }
+
+        try(PlannerClient client = new PlannerClient("localhost", port);
+            BufferedReader console = new BufferedReader(new InputStreamReader(System.in))) {
+            String line;
+            while((line = console.readLine()) != null) {
+                System.out.print(client.send(line));
+                if(line.equalsIgnoreCase("Q"))
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Runs the given number of concurrent clients against a server and prints the throughput.
+     * Every client checks that the size of its Planner matches the courses it added.
+     */
+    private static void load(int port, int clients, int requests) throws Exception {
+        LongAdder completed = new LongAdder();
+        ExecutorService executor = PlannerServer.newConnectionExecutor();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> results = new ArrayList<>(clients);
+            for(int c = 0; c < clients; c++) {
+                String student = "load-" + c;
+                results.add(executor.submit(() -> {
+                    try(PlannerClient client = new PlannerClient("localhost", port)) {
+                        client.send("ID", student);
+                        int size = Integer.parseInt(client.send("S").replaceAll("\\D", ""));
+                        for(int i = 0; i < size; i++)
+                            client.send("R", 1);
+                        for(int i = 1; i <= requests; i++) {
+                            client.send("A", "Course " + i, "CSE", 100 + i, 1, "Instructor", i);
+                            client.send("G", i);
+                            completed.add(2);
+                        }
+                        String reply = client.send("S");
+                        if(!reply.equals("There are " + requests + " courses in the planner.\n"))
+                            throw new IllegalStateException(student + ": " + reply);
+                        client.send("Q");
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> result : results)
+                result.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d clients, %d requests in %.2f s (%.0f requests/s)%n",
+                clients, completed.sum(), seconds, completed.sum() / seconds);
+    }
+}
@@ -0,0 +1,373 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The PlannerDiff class describes how one Planner differs from another as a minimal list of
+ * Courses to remove, insert and move. Two Courses are the same if they are equal.
+ * <p>
+ * The differences are found with the linear-space version of the Myers algorithm: the longest
+ * run of Courses both Planners keep in the same order is searched from both ends at once, and
+ * the problem is split where the two searches meet. This takes O((n + d) * d) time for Planners
+ * of n Courses that differ by d Courses, so comparing a large Planner to a recent backup costs
+ * little more than reading both. A Course removed at one position and inserted at another is
+ * reported as a single move.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerDiff {
+    /**
+     * The kind of a Change.
+     */
+    public enum Kind {
+        INSERT, REMOVE, MOVE
+    }
+
+    /**
+     * A Course that is inserted into, removed from or moved within the Planner.
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final Course course;
+        private final int from, to;
+
+        Change(Kind kind, Course course, int from, int to) {
+            this.kind = kind;
+            this.course = course;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Accessor. Returns the kind of the change.
+         *
+         * @return
+         *      INSERT, REMOVE or MOVE.
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Accessor. Returns the Course that is changed.
+         *
+         * @return
+         *      The inserted Course of the target, or the removed or moved Course of the source.
+         */
+        public Course getCourse() {
+            return course;
+        }
+
+        /**
+         * Accessor. Returns the position of the Course in the source Planner.
+         *
+         * @return
+         *      The position in the source, or 0 for an inserted Course.
+         */
+        public int getFrom() {
+            return from;
+        }
+
+        /**
+         * Accessor. Returns the position of the Course in the target Planner.
+         *
+         * @return
+         *      The position in the target, or 0 for a removed Course.
+         */
+        public int getTo() {
+            return to;
+        }
+
+        /**
+         * Describes the change in a sentence.
+         *
+         * @return
+         *      A sentence such as "CSE 214.01 moved from position 1 to position 3."
+         */
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case INSERT -> course + " added at position " + to + ".";
+                case REMOVE -> course + " removed from position " + from + ".";
+                case MOVE -> course + " moved from position " + from + " to position " + to + ".";
+            };
+        }
+    }
+
+    private final int sourceSize, targetSize;
+    private final Change[] removals, insertions;
+
+    private PlannerDiff(int sourceSize, int targetSize, Change[] removals, Change[] insertions) {
+        this.sourceSize = sourceSize;
+        this.targetSize = targetSize;
+        this.removals = removals;
+        this.insertions = insertions;
+    }
+
+    /**
+     * Computes the changes that turn one Planner into another.
+     *
+     * @param source
+     *      The Planner before the changes, such as a backup.
+     *
+     * @param target
+     *      The Planner after the changes.
+     *
+     * @return
+     *      A PlannerDiff with the fewest insertions and removals that turn source into target.
+     */
+    public static PlannerDiff between(Planner source, Planner target) {
+        Course[] before = source.getCourses(), after = target.getCourses();
+
+        int prefix = 0, suffix = 0, shorter = Math.min(before.length, after.length);
+        while(prefix < shorter && before[prefix].equals(after[prefix]))
+            prefix++;
+        while(suffix < shorter - prefix && before[before.length - 1 - suffix].equals(after[after.length - 1 - suffix]))
+            suffix++;
+
+        HashMap<Course, Integer> ids = new HashMap<>();
+        int[] a = new int[before.length - prefix - suffix], b = new int[after.length - prefix - suffix];
+        for(int i = 0; i < a.length; i++)
+            a[i] = ids.computeIfAbsent(before[prefix + i], k -> ids.size());
+        for(int j = 0; j < b.length; j++)
+            b[j] = ids.computeIfAbsent(after[prefix + j], k -> ids.size());
+
+        boolean[] removed = new boolean[a.length], inserted = new boolean[b.length];
+        new Myers(a, b, removed, inserted).diff(0, a.length, 0, b.length);
+
+        HashMap<Integer, ArrayDeque<Integer>> insertedAt = new HashMap<>();
+        for(int j = 0; j < b.length; j++)
+            if(inserted[j])
+                insertedAt.computeIfAbsent(b[j], k -> new ArrayDeque<>()).add(j);
+
+        ArrayList<Change> removals = new ArrayList<>();
+        Change[] moved = new Change[b.length];
+        for(int i = 0; i < a.length; i++) {
+            if(!removed[i])
+                continue;
+
+            ArrayDeque<Integer> candidates = insertedAt.get(a[i]);
+            Integer j = candidates == null ? null : candidates.poll();
+            Change change = j == null ? new Change(Kind.REMOVE, before[prefix + i], prefix + i + 1, 0)
+                    : new Change(Kind.MOVE, before[prefix + i], prefix + i + 1, prefix + j + 1);
+            removals.add(change);
+            if(j != null)
+                moved[j] = change;
+        }
+
+        ArrayList<Change> insertions = new ArrayList<>();
+        for(int j = 0; j < b.length; j++) {
+            if(moved[j] != null)
+                insertions.add(moved[j]);
+            else if(inserted[j])
+                insertions.add(new Change(Kind.INSERT, after[prefix + j], 0, prefix + j + 1));
+        }
+
+        return new PlannerDiff(before.length, after.length,
+                removals.toArray(new Change[0]), insertions.toArray(new Change[0]));
+    }
+
+    /**
+     * Returns the changes of the diff.
+     *
+     * @return
+     *      The removed and moved Courses in order of their position in the source, then the
+     *      inserted Courses in order of their position in the target.
+     */
+    public List<Change> getChanges() {
+        ArrayList<Change> changes = new ArrayList<>(removals.length + insertions.length);
+        for(Change change : removals)
+            changes.add(change);
+        for(Change change : insertions)
+            if(change.kind == Kind.INSERT)
+                changes.add(change);
+        return changes;
+    }
+
+    /**
+     * Returns the number of changes, counting a move as one change.
+     *
+     * @return
+     *      The number of changes of the diff.
+     */
+    public int size() {
+        int size = removals.length;
+        for(Change change : insertions)
+            if(change.kind == Kind.INSERT)
+                size++;
+        return size;
+    }
+
+    /**
+     * Checks if the two Planners hold the same Courses in the same order.
+     *
+     * @return
+     *      True if there is no change, false otherwise.
+     */
+    public boolean isEmpty() {
+        return removals.length == 0 && insertions.length == 0;
+    }
+
+    /**
+     * Turns a Planner equal to the source of the diff into one equal to its target. The
+     * removals are applied from the last position to the first, then the insertions from the
+     * first position to the last, so each position stays valid when its change is made. The
+     * Planner is left unchanged if any change fails.
+     *
+     * @param planner
+     *      The Planner to change, holding the same Courses as the source.
+     *
+     * @throws IllegalArgumentException
+     *      when the Planner does not hold the Courses of the source, or when it rejects an
+     *      inserted Course that conflicts with another.
+     *
+     * @throws FullPlannerException
+     *      when the target holds more Courses than the Planner's configured maximum.
+     */
+    public void apply(Planner planner) throws IllegalArgumentException, FullPlannerException {
+        if(planner.size() != sourceSize)
+            throw new IllegalArgumentException("Error: The diff applies to a planner of " + sourceSize
+                    + " courses, not " + planner.size() + ".");
+        for(Change change : removals)
+            if(!change.course.equals(planner.getCourse(change.from)))
+                throw new IllegalArgumentException("Error: The planner does not match the source of the diff.");
+
+        int maxCourses = planner.getMaxCourses();
+        if(maxCourses != Planner.UNLIMITED && targetSize > maxCourses)
+            throw new FullPlannerException("Planner is full. No more room for additional course.");
+
+        Planner result = planner.makeCopy();
+        for(int i = removals.length - 1; i >= 0; i--)
+            result.removeCourse(removals[i].from);
+        for(Change change : insertions)
+            result.addCourse(change.course, change.to);
+        planner.restore(result);
+    }
+
+    /**
+     * The search for the shortest edit script between two sequences of Course ids.
+     */
+    private static final class Myers {
+        private final int[] a, b;
+        private final boolean[] removed, inserted;
+        private final int[] forward, backward;
+
+        Myers(int[] a, int[] b, boolean[] removed, boolean[] inserted) {
+            this.a = a;
+            this.b = b;
+            this.removed = removed;
+            this.inserted = inserted;
+            forward = new int[a.length + b.length + 3];
+            backward = new int[a.length + b.length + 3];
+        }
+
+        /**
+         * Marks the removed ids of a[aLow, aHigh) and the inserted ids of b[bLow, bHigh).
+         */
+        void diff(int aLow, int aHigh, int bLow, int bHigh) {
+            while(aLow < aHigh && bLow < bHigh && a[aLow] == b[bLow]) {
+                aLow++;
+                bLow++;
+            }
+            while(aLow < aHigh && bLow < bHigh && a[aHigh - 1] == b[bHigh - 1]) {
+                aHigh--;
+                bHigh--;
+            }
+
+            if(aLow == aHigh || bLow == bHigh) {
+                Arrays.fill(removed, aLow, aHigh, true);
+                Arrays.fill(inserted, bLow, bHigh, true);
+                return;
+            }
+
+            long split = middleSnake(aLow, aHigh, bLow, bHigh);
+            if(split < 0) {
+                Arrays.fill(removed, aLow, aHigh, true);
+                Arrays.fill(inserted, bLow, bHigh, true);
+                return;
+            }
+
+            int x = aLow + (int) (split >>> 32), y = bLow + (int) split;
+            diff(aLow, x, bLow, y);
+            diff(x, aHigh, y, bHigh);
+        }
+
+        /**
+         * Runs the forward and backward searches in turn, one more edit at a time, until they
+         * overlap on a diagonal. Returns the point where they meet relative to the low ends,
+         * packed as x in the high and y in the low 32 bits, or -1 if the sequences have nothing
+         * in common. The diagonals of both searches are shared by every call, and only the
+         * ones a step may read are cleared, so a call costs time in its number of edits only.
+         */
+        private long middleSnake(int aLow, int aHigh, int bLow, int bHigh) {
+            int n = aHigh - aLow, m = bHigh - bLow;
+            int maxEdits = (n + m + 1) / 2, offset = maxEdits;
+            Arrays.fill(forward, offset - 1, offset + 2, -1);
+            Arrays.fill(backward, offset - 1, offset + 2, -1);
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            int forwardStart = 0, forwardEnd = 0, backwardStart = 0, backwardEnd = 0;
+
+            for(int d = 0; d < maxEdits; d++) {
+                if(d > 0) {
+                    forward[offset - d - 1] = forward[offset + d + 1] = -1;
+                    backward[offset - d - 1] = backward[offset + d + 1] = -1;
+                }
+                int low = offset - d - 1, high = offset + d + 1;
+
+                for(int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                    int index = offset + k;
+                    int x = k == -d || (k != d && forward[index - 1] < forward[index + 1])
+                            ? forward[index + 1] : forward[index - 1] + 1;
+                    int y = x - k;
+                    while(x < n && y < m && a[aLow + x] == b[bLow + y]) {
+                        x++;
+                        y++;
+                    }
+                    forward[index] = x;
+
+                    if(x > n)
+                        forwardEnd += 2;
+                    else if(y > m)
+                        forwardStart += 2;
+                    else if(odd) {
+                        int other = offset + delta - k;
+                        if(other >= low && other <= high && backward[other] != -1 && x >= n - backward[other])
+                            return (long) x << 32 | y;
+                    }
+                }
+
+                for(int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                    int index = offset + k;
+                    int x = k == -d || (k != d && backward[index - 1] < backward[index + 1])
+                            ? backward[index + 1] : backward[index - 1] + 1;
+                    int y = x - k;
+                    while(x < n && y < m && a[aHigh - x - 1] == b[bHigh - y - 1]) {
+                        x++;
+                        y++;
+                    }
+                    backward[index] = x;
+
+                    if(x > n)
+                        backwardEnd += 2;
+                    else if(y > m)
+                        backwardStart += 2;
+                    else if(!odd) {
+                        int other = offset + delta - k;
+                        if(other >= low && other <= high && forward[other] != -1) {
+                            int forwardX = forward[other];
+                            if(forwardX >= n - x)
+                                return (long) forwardX << 32 | (forwardX - (other - offset));
+                        }
+                    }
+                }
+            }
+            return -1;
+        }
+    }
+}
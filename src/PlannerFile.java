@@ -0,0 +1,294 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+/**
+ * The PlannerFile class saves a Planner in a compact, versioned binary format and reads it
+ * back. Strings are stored once in a dictionary and referenced by number, integers are
+ * stored as variable-length quantities, and the section is stored as a raw byte.
+ * <p>
+ * A file is loaded by reading all of its bytes and decoding every Course into a new Planner.
+ * The file is not memory-mapped and Courses are not decoded lazily: the Planner is saved back
+ * over the same file, and on Windows a mapped file cannot be replaced until its mapping is
+ * garbage collected. The offset table still lets a record be found without reading the ones
+ * before it.
+ * <p>
+ * Layout of version 2, where varint is an unsigned LEB128 integer:
+ * <pre>
+ *   int     magic "CPLN"
+ *   byte    version
+ *   varint  maximum number of courses (0 for no limit)
+ *   varint  number of dictionary strings, followed by each string as
+ *           varint byte length and UTF-8 bytes
+ *   varint  number of courses
+ *   int[]   offset of each course record, relative to the first record
+ *   records varint name, varint department, zigzag varint code, byte section,
+ *           varint instructor; strings are dictionary numbers plus one, 0 for null
+ *   then    varint number of meeting times, followed by each meeting time as byte
+ *           day (0 for Monday), varint start in minutes of the day and varint length
+ *           in minutes
+ * </pre>
+ * Version 1 files have no meeting times in their records and are read as Courses without
+ * meetings. Every count read from a file is checked against the bytes left before anything
+ * is allocated, so a corrupted file is reported with an IOException.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerFile {
+    public static final int MAGIC = 0x43504C4E;
+    public static final byte VERSION = 2;
+
+    private final ByteBuffer buffer;
+    private final byte version;
+    private final int maxCourses;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final int offsetTable;
+    private final int records;
+    private final int count;
+
+    /**
+     * Constructor reads the header and the dictionary layout of a planner file.
+     *
+     * @param buffer
+     *      The content of the file.
+     *
+     * @throws IOException
+     *      when the content is not a supported planner file.
+     */
+    private PlannerFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            if(buffer.getInt() != MAGIC)
+                throw new IOException("Error: Not a planner file.");
+            version = buffer.get();
+            if(version < 1 || version > VERSION)
+                throw new IOException("Error: Unsupported planner file version.");
+
+            maxCourses = readVarint(buffer);
+
+            stringOffsets = new int[readCount(buffer, 1)];
+            strings = new String[stringOffsets.length];
+            for(int i = 0; i < stringOffsets.length; i++) {
+                stringOffsets[i] = buffer.position();
+                int length = readCount(buffer, 1);
+                buffer.position(buffer.position() + length);
+            }
+
+            count = readCount(buffer, Integer.BYTES);
+            offsetTable = buffer.position();
+            records = offsetTable + count * Integer.BYTES;
+        } catch(RuntimeException e) {
+            throw new IOException("Error: Planner file is corrupted.", e);
+        }
+    }
+
+    /**
+     * Reads a whole planner file into a new Planner, decoding every Course. Nothing keeps the
+     * file open once the Planner is returned.
+     *
+     * @param path
+     *      The file to read.
+     *
+     * @return
+     *      A Planner holding the Courses saved in the file.
+     *
+     * @throws IOException
+     *      when the file cannot be read or is not a supported planner file.
+     */
+    public static Planner load(Path path) throws IOException {
+        return new PlannerFile(ByteBuffer.wrap(Files.readAllBytes(path))).toPlanner();
+    }
+
+    /**
+     * Saves a Planner to a file, replacing the file if it exists.
+     *
+     * @param planner
+     *      The Planner to save.
+     *
+     * @param path
+     *      The destination file.
+     *
+     * @throws IOException
+     *      when the file cannot be written.
+     */
+    public static void save(Planner planner, Path path) throws IOException {
+        HashMap<String, Integer> dictionary = new HashMap<>();
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(planner.size() * 8);
+        int[] offsets = new int[planner.size()];
+
+        for(int i = 0; i < planner.size(); i++) {
+            Course course = planner.getCourse(i + 1);
+            offsets[i] = records.size();
+            writeVarint(records, reference(dictionary, strings, course.getName()));
+            writeVarint(records, reference(dictionary, strings, course.getDepartment()));
+            writeVarint(records, (course.getCode() << 1) ^ (course.getCode() >> 31));
+            records.write(course.getSection());
+            writeVarint(records, reference(dictionary, strings, course.getInstructor()));
+
+            MeetingTime[] meetings = course.meetings();
+            writeVarint(records, meetings.length);
+            for(MeetingTime meeting : meetings) {
+                records.write(meeting.getDay());
+                writeVarint(records, meeting.getStart());
+                writeVarint(records, meeting.getEnd() - meeting.getStart());
+            }
+        }
+
+        try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            header.write(MAGIC >>> 24);
+            header.write(MAGIC >>> 16);
+            header.write(MAGIC >>> 8);
+            header.write(MAGIC);
+            header.write(VERSION);
+            writeVarint(header, planner.getMaxCourses());
+            writeVarint(header, dictionary.size());
+            header.writeTo(out);
+            strings.writeTo(out);
+
+            ByteArrayOutputStream table = new ByteArrayOutputStream(5 + offsets.length * Integer.BYTES);
+            writeVarint(table, offsets.length);
+            for(int offset : offsets) {
+                table.write(offset >>> 24);
+                table.write(offset >>> 16);
+                table.write(offset >>> 8);
+                table.write(offset);
+            }
+            table.writeTo(out);
+            records.writeTo(out);
+        }
+    }
+
+    /**
+     * Decodes the Course of the given record, 0 for the first one.
+     */
+    private Course decode(int index) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(records + buffer.getInt(offsetTable + index * Integer.BYTES));
+
+        String name = string(readVarint(record));
+        String department = string(readVarint(record));
+        int zigzag = readVarint(record);
+        int code = (zigzag >>> 1) ^ -(zigzag & 1);
+        byte section = record.get();
+        String instructor = string(readVarint(record));
+
+        MeetingTime[] meetings = MeetingTime.NONE;
+        if(version >= 2) {
+            meetings = new MeetingTime[readCount(record, 3)];
+            for(int i = 0; i < meetings.length; i++) {
+                int day = record.get(), start = readVarint(record);
+                meetings[i] = new MeetingTime(day, start, start + readVarint(record));
+            }
+        }
+
+        return new Course(name, department, code, section, instructor, meetings);
+    }
+
+    /**
+     * Decodes every Course of the file into a new Planner.
+     *
+     * @return
+     *      A Planner holding the Courses saved in the file.
+     *
+     * @throws IOException
+     *      when a record of the file is corrupted.
+     */
+    private Planner toPlanner() throws IOException {
+        try {
+            Course[] all = new Course[count];
+            for(int i = 0; i < all.length; i++)
+                all[i] = decode(i);
+
+            Planner planner = new Planner(maxCourses);
+            planner.setCourses(all);
+            return planner;
+        } catch(RuntimeException e) {
+            throw new IOException("Error: Planner file is corrupted.", e);
+        }
+    }
+
+    /**
+     * Returns the dictionary string for a reference, decoding it on first access.
+     */
+    private String string(int reference) {
+        if(reference == 0)
+            return null;
+
+        String string = strings[reference - 1];
+        if(string == null) {
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(stringOffsets[reference - 1]);
+            int length = readCount(bytes, 1);
+            byte[] utf8 = new byte[length];
+            bytes.get(utf8);
+            string = new String(utf8, StandardCharsets.UTF_8);
+            strings[reference - 1] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Returns the reference of a string, adding it to the dictionary if it is new.
+     */
+    private static int reference(HashMap<String, Integer> dictionary, ByteArrayOutputStream strings, String string) {
+        if(string == null)
+            return 0;
+
+        Integer reference = dictionary.get(string);
+        if(reference == null) {
+            reference = dictionary.size() + 1;
+            dictionary.put(string, reference);
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(strings, utf8.length);
+            strings.write(utf8, 0, utf8.length);
+        }
+        return reference;
+    }
+
+    /**
+     * Writes an int as an unsigned variable-length quantity.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads the number of items that follow, each taking at least the given number of bytes.
+     *
+     * @throws IllegalStateException
+     *      when the count is negative or the items cannot fit in the bytes left.
+     */
+    private static int readCount(ByteBuffer in, int itemBytes) throws IllegalStateException {
+        int count = readVarint(in);
+        if(count < 0 || (long) count * itemBytes > in.remaining())
+            throw new IllegalStateException("Error: Planner file is truncated.");
+        return count;
+    }
+
+    /**
+     * Reads an unsigned variable-length quantity.
+     */
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if(b >= 0)
+                return value;
+        }
+        throw new IllegalStateException("Malformed variable-length integer.");
+    }
+}
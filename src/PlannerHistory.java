@@ -0,0 +1,350 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+
+/**
+ * The PlannerHistory class records the edits made to a Planner so that they can be undone
+ * and redone. Each edit is stored as its inverse operation instead of a copy of the Planner.
+ * The history keeps at most a configured number of steps. When it grows beyond that, the
+ * oldest edits are compacted into a single checkpoint, which is a snapshot of the Planner
+ * taken before them. Memory use therefore stays flat no matter how many edits are made.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerHistory {
+    public static final int DEFAULT_DEPTH = 100;
+
+    private final Planner planner;
+    private final int depth;
+    private final ArrayDeque<Edit> undoEdits = new ArrayDeque<>();
+    private final ArrayDeque<Edit> redoEdits = new ArrayDeque<>();
+    private Planner start;
+    private boolean compacted;
+
+    /**
+     * An operation on a Planner that can be reverted.
+     */
+    private abstract static class Edit {
+        /**
+         * Applies the operation to the Planner.
+         *
+         * @return
+         *      The Edit that reverts this operation.
+         */
+        abstract Edit apply(Planner planner) throws FullPlannerException;
+    }
+
+    /**
+     * Inserts a Course at a position.
+     */
+    private static final class Insert extends Edit {
+        private final Course course;
+        private final int position;
+
+        Insert(Course course, int position) {
+            this.course = course;
+            this.position = position;
+        }
+
+        @Override
+        Remove apply(Planner planner) throws FullPlannerException {
+            planner.addCourse(course, position);
+            return new Remove(position);
+        }
+    }
+
+    /**
+     * Removes the Course at a position.
+     */
+    private static final class Remove extends Edit {
+        private final int position;
+
+        Remove(int position) {
+            this.position = position;
+        }
+
+        @Override
+        Insert apply(Planner planner) {
+            Course course = planner.getCourse(position);
+            planner.removeCourse(position);
+            return new Insert(course, position);
+        }
+    }
+
+    /**
+     * Moves the Course at a position to another position.
+     */
+    private static final class Move extends Edit {
+        private final int from, to;
+
+        Move(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        Move apply(Planner planner) {
+            planner.moveCourse(from, to);
+            return new Move(to, from);
+        }
+    }
+
+    /**
+     * Exchanges the Courses at two positions.
+     */
+    private static final class Swap extends Edit {
+        private final int first, second;
+
+        Swap(int first, int second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        Swap apply(Planner planner) {
+            planner.swap(first, second);
+            return this;
+        }
+    }
+
+    /**
+     * Replaces the content of the Planner with a snapshot.
+     */
+    private static final class Restore extends Edit {
+        private final Planner snapshot;
+
+        Restore(Planner snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        Restore apply(Planner planner) {
+            Planner current = planner.makeCopy();
+            planner.restore(snapshot);
+            return new Restore(current);
+        }
+    }
+
+    /**
+     * Constructor creates an empty history of the given Planner.
+     *
+     * @param planner
+     *      The Planner whose edits are recorded.
+     *
+     * @param depth
+     *      Maximum number of steps that can be undone, one of which is reserved for the
+     *      checkpoint of compacted edits.
+     *
+     * @throws IllegalArgumentException
+     *      when depth is less than 2.
+     */
+    public PlannerHistory(Planner planner, int depth) throws IllegalArgumentException {
+        if(depth < 2)
+            throw new IllegalArgumentException("Error: History depth must be at least 2.");
+        this.planner = planner;
+        this.depth = depth;
+    }
+
+    /**
+     * Accessor. Returns the Planner whose edits are recorded.
+     *
+     * @return
+     *      The Planner of this history.
+     */
+    public Planner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Adds a Course to the Planner and records the edit.
+     *
+     * @param course
+     *      The Course being added.
+     *
+     * @param position
+     *      The position of the new Course in the Planner.
+     *
+     * @throws IllegalArgumentException
+     *      when the position is not within the valid range.
+     *
+     * @throws FullPlannerException
+     *      when the Planner has reached its configured maximum.
+     */
+    public void addCourse(Course course, int position) throws IllegalArgumentException, FullPlannerException {
+        Planner before = checkpointCandidate();
+        record(before, new Insert(course, position).apply(planner));
+    }
+
+    /**
+     * Removes a Course from the Planner and records the edit.
+     *
+     * @param position
+     *      The position of the Course being removed.
+     *
+     * @return
+     *      The removed Course.
+     *
+     * @throws IllegalArgumentException
+     *      when the position is not within the valid range.
+     */
+    public Course removeCourse(int position) throws IllegalArgumentException {
+        Planner before = checkpointCandidate();
+        Insert inverse = new Remove(position).apply(planner);
+        record(before, inverse);
+        return inverse.course;
+    }
+
+    /**
+     * Moves a Course to another position and records the edit.
+     *
+     * @param from
+     *      The current position of the Course.
+     *
+     * @param to
+     *      The new position of the Course.
+     *
+     * @throws IllegalArgumentException
+     *      when either position is not within the valid range.
+     */
+    public void moveCourse(int from, int to) throws IllegalArgumentException {
+        Planner before = checkpointCandidate();
+        record(before, new Move(from, to).apply(planner));
+    }
+
+    /**
+     * Exchanges the positions of two Courses and records the edit.
+     *
+     * @param first
+     *      The position of one Course.
+     *
+     * @param second
+     *      The position of the other Course.
+     *
+     * @throws IllegalArgumentException
+     *      when either position is not within the valid range.
+     */
+    public void swap(int first, int second) throws IllegalArgumentException {
+        Planner before = checkpointCandidate();
+        record(before, new Swap(first, second).apply(planner));
+    }
+
+    /**
+     * Reorders the Courses with a comparator and records the edit. The edit is undone by
+     * restoring a snapshot taken before the sort, which costs constant time and memory.
+     *
+     * @param comparator
+     *      The order of the Courses.
+     */
+    public void sort(Comparator<? super Course> comparator) {
+        Planner before = checkpointCandidate();
+        Planner unsorted = planner.makeCopy();
+        planner.sort(comparator);
+        record(before, new Restore(unsorted));
+    }
+
+    /**
+     * Replaces the content of the Planner with the given snapshot and records the edit.
+     *
+     * @param snapshot
+     *      The Planner whose Courses replace the current ones.
+     */
+    public void restore(Planner snapshot) {
+        Planner before = checkpointCandidate();
+        record(before, new Restore(snapshot).apply(planner));
+    }
+
+    /**
+     * Reverts the most recent edit that has not been undone.
+     *
+     * @return
+     *      True if an edit was undone, false if there is nothing to undo.
+     *
+     * @throws FullPlannerException
+     *      when reverting the edit would exceed the configured maximum of the Planner.
+     */
+    public boolean undo() throws FullPlannerException {
+        if(undoEdits.isEmpty())
+            return false;
+
+        redoEdits.push(undoEdits.pop().apply(planner));
+        return true;
+    }
+
+    /**
+     * Applies again the most recently undone edit.
+     *
+     * @return
+     *      True if an edit was redone, false if there is nothing to redo.
+     *
+     * @throws FullPlannerException
+     *      when applying the edit would exceed the configured maximum of the Planner.
+     */
+    public boolean redo() throws FullPlannerException {
+        if(redoEdits.isEmpty())
+            return false;
+
+        push(redoEdits.pop().apply(planner));
+        return true;
+    }
+
+    /**
+     * Returns the number of steps that can currently be undone.
+     *
+     * @return
+     *      The number of recorded undo steps.
+     */
+    public int undoSize() {
+        return undoEdits.size();
+    }
+
+    /**
+     * Returns the number of steps that can currently be redone.
+     *
+     * @return
+     *      The number of recorded redo steps.
+     */
+    public int redoSize() {
+        return redoEdits.size();
+    }
+
+    /**
+     * Returns a snapshot of the Planner if the next edit starts a new history, null otherwise.
+     * The snapshot becomes the checkpoint once the oldest edits are compacted.
+     */
+    private Planner checkpointCandidate() {
+        return undoEdits.isEmpty() ? planner.makeCopy() : null;
+    }
+
+    /**
+     * Records the inverse of a new edit that has been applied and discards the redo steps.
+     */
+    private void record(Planner before, Edit inverse) {
+        if(before != null) {
+            start = before;
+            compacted = false;
+        }
+        redoEdits.clear();
+        push(inverse);
+    }
+
+    /**
+     * Records an undo step. When the history is full, the oldest steps are compacted into
+     * a checkpoint that restores the Planner to the state before all of them.
+     */
+    private void push(Edit inverse) {
+        undoEdits.push(inverse);
+        if(undoEdits.size() <= depth)
+            return;
+
+        if(!compacted) {
+            undoEdits.pollLast();
+            undoEdits.pollLast();
+            undoEdits.offerLast(new Restore(start));
+            start = null;
+            compacted = true;
+        } else {
+            Edit checkpoint = undoEdits.pollLast();
+            undoEdits.pollLast();
+            undoEdits.offerLast(checkpoint);
+        }
+    }
+}
@@ -4,44 +4,120 @@
  * @author Zhen Wei Liao
  *
  */
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 
 public class PlannerManager {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SEARCH_RESULTS = 10;
+    private static final String MENU = """
+            (A) Add Course
+            (G) Get Course
+            (R) Remove Course
+            (P) Print Courses in Planner
+            (F) Filter by Department Code
+            (FQ) Query Courses
+            (LV) List Courses by Level
+            (L) Look For Course
+            (M) Move Course
+            (SW) Swap Courses
+            (SO) Sort Courses
+            (S) Size
+            (C) List Time Conflicts
+            (SG) Generate Schedules
+            (PQ) Add Prerequisite
+            (V) Validate Prerequisite Order
+            (B) Backup
+            (PB) Print Courses in Backup
+            (D) Diff Backup and Planner
+            (RB) Revert to Backup
+            (U) Undo
+            (RD) Redo
+            (SV) Save Planner to File
+            (LD) Load Planner from File
+            (IC) Import Catalog
+            (AC) Add Course from Catalog
+            (SC) Search Catalog
+            (MT) Print Metrics
+            (Q) Quit
+            """;
+
     private static Planner planner, backupPlanner;
-    private static Scanner input;
-    private static boolean run;
+    private static PlannerHistory history;
+    private static Catalog catalog = new Catalog();
+    private static PrerequisiteGraph prerequisites = new PrerequisiteGraph();
+    private static BufferedReader input;
+    private static PrintWriter out;
+    private static boolean run, interactive;
+    private static long inputNanos;
 
 
     /**
-     * Prints the given prompt and return user input.
+     * Prints the given prompt and return user input. The prompt is only printed
+     * in interactive mode.
      *
      * @param prompt
      *      String asking the user to enter something.
      *
      * @return
      *      User input.
+     *
+     * @throws IllegalArgumentException
+     *      when the input ends before the answer is given.
      */
     private static String userInput(String prompt){
-        System.out.print(prompt);
-        return input.nextLine();
+        if (interactive) {
+            out.print(prompt);
+            out.flush();
+        }
+        long startTime = PlannerMetrics.startTime();
+        String line = readLine();
+        if (startTime != 0)
+            inputNanos += System.nanoTime() - startTime;
+        if (line == null)
+            throw new IllegalArgumentException("Error: Unexpected end of input.");
+        return line;
     }
 
     /**
-     * Creates a Course based on user input.
+     * Reads the next line of input.
      *
      * @return
-     *      A new course based on user input.
+     *      The next line, or null at the end of the input.
      */
-    private static Course createCourse() throws NegativeValueException {
-        Course course = new Course();
-        course.setName(userInput("Enter course name: "));
-        course.setDepartment(userInput("Enter department: "));
-        course.setCode(Integer.parseInt(userInput("Enter course code: ")));
-        course.setSection((byte) Integer.parseInt(userInput("Enter course section: ")));
-        course.setInstructor(userInput("Enter instructor: "));
+    private static String readLine(){
+        try {
+            return input.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        return course;
+    /**
+     * Reads the information of a Course from user input.
+     *
+     * @return
+     *      A builder holding the course information entered by the user.
+     */
+    private static Course.Builder createCourse() throws NegativeValueException {
+        return Course.builder()
+                .name(userInput("Enter course name: "))
+                .department(userInput("Enter department: "))
+                .code(Integer.parseInt(userInput("Enter course code: ")))
+                .section((byte) Integer.parseInt(userInput("Enter course section: ")))
+                .instructor(userInput("Enter instructor: "));
     }
 
     /**
@@ -52,31 +128,311 @@ public class PlannerManager {
      */
     private static void addOrLook(String choice) throws NegativeValueException, IllegalArgumentException, FullPlannerException {
 
-        Course course = createCourse();
+        Course.Builder builder = createCourse();
 
         if(choice.equals("A")) {
+            Course course = builder.meetings(MeetingTime.parse(userInput("Enter meeting times (e.g. MWF 10:00-10:53, blank if none): "))).build();
             int position = Integer.parseInt(userInput("Enter position: "));
-            planner.addCourse(course, position);
-            System.out.println(planner.getCourse(position) + " successfully added to planner.");
+            history.addCourse(course, position);
+            out.println(planner.getCourse(position) + " successfully added to planner.");
+
+            List<Course> conflicts = planner.conflicts(course);
+            if(!conflicts.isEmpty())
+                out.println("Warning: " + course + " conflicts with " + joinCourses(conflicts) + ".");
+            for (Course[] violation : prerequisites.validate(planner))
+                if (sameCourse(violation[1], course) || sameCourse(violation[0], course))
+                    out.println("Warning: " + violation[1] + " is placed before its prerequisite " + violation[0] + ".");
         }
         else {
-            if(planner.exists(course))
-                System.out.println(course + " is found in the planner at position " + (planner.index(course) + 1));
+            Course course = builder.build();
+            int index = planner.index(course);
+            if(index != -1)
+                out.println(course + " is found in the planner at position " + (index + 1));
             else
-                System.out.println("Course not found.");
+                out.println("Course not found.");
+        }
+    }
+
+    /**
+     * Prints every pair of courses in the planner that meet at the same time.
+     */
+    private static void printConflicts(){
+        List<Course[]> pairs = planner.conflictingPairs();
+        if (pairs.isEmpty())
+            out.println("No time conflicts in the planner.");
+        for (Course[] pair : pairs)
+            out.println(pair[0] + " conflicts with " + pair[1] + ".");
+    }
+
+    /**
+     * Prints the best conflict-free schedules made of one section of each course in the planner.
+     */
+    private static void generateSchedules(){
+        int limit = Integer.parseInt(userInput("Enter number of schedules: "));
+        List<ScheduleGenerator.Schedule> schedules = new ScheduleGenerator(planner).top(limit);
+        if (schedules.isEmpty())
+            out.println("No conflict-free schedule found.");
+
+        for (int i = 0; i < schedules.size(); i++) {
+            out.println("Schedule " + (i + 1) + " (preference score " + schedules.get(i).getScore() + "):");
+            printTable(planner, schedules.get(i).getPositions());
         }
     }
 
+    /**
+     * Records that a course must be taken after another one.
+     */
+    private static void addPrerequisite(){
+        String department = userInput("Enter department: ");
+        int code = Integer.parseInt(userInput("Enter course code: "));
+        String prerequisiteDepartment = userInput("Enter prerequisite department: ");
+        int prerequisiteCode = Integer.parseInt(userInput("Enter prerequisite course code: "));
+
+        if (prerequisites.addPrerequisite(department, code, prerequisiteDepartment, prerequisiteCode))
+            out.println(prerequisiteDepartment + " " + prerequisiteCode + " is now a prerequisite of " + department + " " + code + ".");
+        else
+            out.println("Prerequisite already recorded.");
+    }
+
+    /**
+     * Prints every course in the planner that is placed before one of its prerequisites.
+     */
+    private static void validateOrder(){
+        List<Course[]> violations = prerequisites.validate(planner);
+        if (violations.isEmpty())
+            out.println("Every course is placed after its prerequisites.");
+        for (Course[] violation : violations)
+            out.println(violation[1] + " is placed before its prerequisite " + violation[0] + ".");
+    }
+
+    /**
+     * Checks whether two courses are sections of the same course.
+     *
+     * @param a
+     *      One course.
+     *
+     * @param b
+     *      The other course.
+     *
+     * @return
+     *      True if both courses have the same department and code, false otherwise.
+     */
+    private static boolean sameCourse(Course a, Course b){
+        return a.getCode() == b.getCode() && Objects.equals(a.getDepartment(), b.getDepartment());
+    }
+
+    /**
+     * Joins courses into a comma-separated list.
+     *
+     * @param courses
+     *      The courses to join.
+     *
+     * @return
+     *      The courses separated by commas.
+     */
+    private static String joinCourses(List<Course> courses){
+        StringBuilder text = new StringBuilder();
+        for (Course course : courses) {
+            if (text.length() > 0)
+                text.append(", ");
+            text.append(course);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Imports the sections listed in a CSV or TSV file into the catalog.
+     */
+    private static void importCatalog(){
+        String fileName = userInput("Enter file name: ");
+        CatalogImporter importer = new CatalogImporter();
+        try {
+            int count = importer.importFile(Path.of(fileName), catalog, Runtime.getRuntime().availableProcessors());
+            out.println(count + " sections imported into the catalog (" + importer.getSkipped() + " lines skipped).");
+            out.println(StringPool.report());
+        } catch (IOException e) {
+            out.println("Error: Unable to import catalog from " + fileName + ".");
+        }
+    }
+
+    /**
+     * Enable user to add a section of the catalog to the planner by its department, code and section.
+     */
+    private static void addFromCatalog() throws IllegalArgumentException, FullPlannerException {
+        String department = userInput("Enter department: ");
+        int code = Integer.parseInt(userInput("Enter course code: "));
+        byte section = (byte) Integer.parseInt(userInput("Enter course section: "));
+
+        Course course = catalog.find(department, code, section);
+        if (course == null) {
+            out.println("Course not found in the catalog.");
+            return;
+        }
+
+        int position = Integer.parseInt(userInput("Enter position: "));
+        history.addCourse(course, position);
+        out.println(course + " successfully added to planner.");
+    }
+
+    /**
+     * Prints the catalog sections that best match a search by name or instructor.
+     */
+    private static void searchCatalog(){
+        String query = userInput("Enter search text: ");
+        Planner results = new Planner();
+        results.setCourses(catalog.searchIndex().search(query, SEARCH_RESULTS).toArray(new Course[0]));
+
+        if (results.size() == 0)
+            out.println("No matching course in the catalog.");
+        else
+            printTable(results, null);
+    }
+
     /**
      * Enable user to remove a course from the planner.
      */
     private static void removeCourse() throws IllegalArgumentException {
-        System.out.print("Enter position: ");
-        int position = Integer.parseInt(input.nextLine());
+        int position = Integer.parseInt(userInput("Enter position: "));
+
+        Course removedCourse = history.removeCourse(position);
+        out.println(removedCourse + " has been successfully removed from the planner.");
+    }
+
+    /**
+     * Enable user to move a course to another position in the planner.
+     */
+    private static void moveCourse() throws IllegalArgumentException {
+        int from = Integer.parseInt(userInput("Enter position: "));
+        int to = Integer.parseInt(userInput("Enter new position: "));
+
+        history.moveCourse(from, to);
+        out.println(planner.getCourse(to) + " moved to position " + to + ".");
+    }
+
+    /**
+     * Enable user to exchange the positions of two courses in the planner.
+     */
+    private static void swapCourses() throws IllegalArgumentException {
+        int first = Integer.parseInt(userInput("Enter first position: "));
+        int second = Integer.parseInt(userInput("Enter second position: "));
+
+        history.swap(first, second);
+        out.println(planner.getCourse(first) + " and " + planner.getCourse(second) + " swapped.");
+    }
+
+    /**
+     * Enable user to sort the courses in the planner by department and code, name or instructor.
+     */
+    private static void sortCourses() throws IllegalArgumentException {
+        String order = userInput("Sort by (D) department and code, (N) name or (I) instructor: ").toUpperCase();
+        Comparator<Course> comparator = switch (order) {
+            case "D" -> Comparator.comparing(Course::getDepartment, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                    .thenComparingInt(Course::getCode).thenComparingInt(Course::getSection);
+            case "N" -> Comparator.comparing(Course::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+            case "I" -> Comparator.comparing(Course::getInstructor, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+            default -> throw new IllegalArgumentException("Please enter only the listed choices.");
+        };
+
+        history.sort(comparator);
+        out.println("Planner sorted.");
+    }
+
+    /**
+     * Prints a table of the course at the given position.
+     *
+     * @param position
+     *      The position of the course in the planner.
+     */
+    private static void printCourse(int position){
+        printTable(planner, new int[]{position});
+    }
+
+    /**
+     * Prints a table of the courses of the given department, keeping their preference numbers.
+     *
+     * @param department
+     *      The department code of the courses to print.
+     */
+    private static void printFilter(String department){
+        printTable(planner, planner.filter(department));
+    }
+
+    /**
+     * Prints the courses in the planner that match the conditions entered by the user.
+     * Each condition may be left blank to match every course.
+     */
+    private static void queryCourses() throws NegativeValueException, IllegalArgumentException {
+        CourseQuery.Builder query = CourseQuery.builder();
 
-        Course removedCourse = planner.getCourse(position);
-        planner.removeCourse(position);
-        System.out.println(removedCourse + " has been successfully removed from the planner.");
+        String department = userInput("Enter department (blank for any): ").trim();
+        if (!department.isEmpty())
+            query.department(department);
+
+        String codes = userInput("Enter code range (e.g. 300-399, blank for any): ").trim();
+        if (!codes.isEmpty()) {
+            int dash = codes.indexOf('-', 1);
+            if (dash < 0)
+                query.code(Integer.parseInt(codes));
+            else
+                query.codes(Integer.parseInt(codes.substring(0, dash).trim()), Integer.parseInt(codes.substring(dash + 1).trim()));
+        }
+
+        String section = userInput("Enter section (blank for any): ").trim();
+        if (!section.isEmpty())
+            query.section((byte) Integer.parseInt(section));
+
+        String instructor = userInput("Enter instructor (blank for any): ").trim();
+        if (!instructor.isEmpty())
+            query.instructor(instructor);
+
+        String limit = userInput("Enter maximum number of courses (blank for no limit): ").trim();
+        if (!limit.isEmpty())
+            query.limit(Integer.parseInt(limit));
+
+        int[] positions = query.build().positions(planner);
+        if (positions.length == 0)
+            out.println("No course in the planner matches the query.");
+        else
+            printTable(planner, positions);
+    }
+
+    /**
+     * Prints the courses of a department at a level, such as 300 for the codes 300 to 399,
+     * or within a range of codes, ordered by code and section.
+     */
+    private static void listLevel() throws IllegalArgumentException {
+        String department = userInput("Enter department: ").trim();
+        String codes = userInput("Enter level or code range (e.g. 300 or 300-399): ").trim();
+
+        int dash = codes.indexOf('-', 1);
+        int[] positions = dash < 0
+                ? planner.level(department, Integer.parseInt(codes))
+                : planner.range(department, Integer.parseInt(codes.substring(0, dash).trim()), Integer.parseInt(codes.substring(dash + 1).trim()));
+        if (positions.length == 0)
+            out.println("No course in the planner matches the query.");
+        else
+            printTable(planner, positions);
+    }
+
+    /**
+     * Prints a table of the courses in the given planner.
+     *
+     * @param target
+     *      The planner to print.
+     *
+     * @param positions
+     *      The positions of the courses to print, or null to print every course.
+     */
+    private static void printTable(Planner target, int[] positions){
+        try {
+            if (positions == null)
+                target.writeTable(out);
+            else
+                target.writeTable(out, positions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        out.println();
     }
 
     /**
@@ -84,7 +440,8 @@ public class PlannerManager {
      */
     private static void backup(){
         backupPlanner = planner.makeCopy();
-        System.out.println("Created a backup of the current planner.");
+        PlannerMetrics.backedUp();
+        out.println("Created a backup of the current planner.");
     }
 
     /**
@@ -92,29 +449,91 @@ public class PlannerManager {
      */
     private static void printBackup(){
         if (backupPlanner != null)
-            System.out.println(backupPlanner);
+            printTable(backupPlanner, null);
         else
-            System.out.println("No record of backup.");
+            out.println("No record of backup.");
+    }
+
+    /**
+     * Prints the courses added, removed and moved since the backup was made.
+     */
+    private static void printDiff(){
+        if (backupPlanner == null) {
+            out.println("No record of backup.");
+            return;
+        }
+
+        PlannerDiff diff = PlannerDiff.between(backupPlanner, planner);
+        if (diff.isEmpty())
+            out.println("Planner is unchanged since the backup.");
+        for (PlannerDiff.Change change : diff.getChanges())
+            out.println(change);
     }
 
     /**
-     * Replaces the current Planner with the backup Planner.
+     * Replaces the content of the current Planner with the backup Planner.
      */
     private static void revertBackup(){
         if (backupPlanner != null) {
-            planner = backupPlanner;
-            System.out.println("Planner successfully reverted to the backup copy.");
+            history.restore(backupPlanner);
+            PlannerMetrics.reverted();
+            out.println("Planner successfully reverted to the backup copy.");
         } else
-            System.out.println("No record of backup.......Planner unmodified.");
+            out.println("No record of backup.......Planner unmodified.");
+    }
+
+    /**
+     * Saves the current planner to a file.
+     */
+    private static void save(){
+        String fileName = userInput("Enter file name: ");
+        try {
+            PlannerFile.save(planner, Path.of(fileName));
+            out.println("Planner successfully saved to " + fileName + ".");
+        } catch (IOException e) {
+            out.println("Error: Unable to save planner to " + fileName + ".");
+        }
+    }
+
+    /**
+     * Replaces the content of the current planner with a planner saved in a file.
+     */
+    private static void load(){
+        String fileName = userInput("Enter file name: ");
+        try {
+            history.restore(PlannerFile.load(Path.of(fileName)));
+            out.println("Planner successfully loaded from " + fileName + ".");
+        } catch (IOException e) {
+            out.println("Error: Unable to load planner from " + fileName + ".......Planner unmodified.");
+        }
+    }
+
+    /**
+     * Reverts the most recent change made to the planner.
+     */
+    private static void undo() throws FullPlannerException {
+        if (history.undo())
+            out.println("Undid the last change to the planner.");
+        else
+            out.println("Nothing to undo.");
+    }
+
+    /**
+     * Applies again the most recently undone change to the planner.
+     */
+    private static void redo() throws FullPlannerException {
+        if (history.redo())
+            out.println("Redid the last undone change to the planner.");
+        else
+            out.println("Nothing to redo.");
     }
 
     /**
      * Ends the program.
      */
     private static void terminate(){
-        System.out.println("Program terminating successfully...");
+        out.println("Program terminating successfully...");
         run = false;
-        input.close();
     }
 
     /**
@@ -122,20 +541,50 @@ public class PlannerManager {
      *
      */
     private static void commands() throws NegativeValueException, FullPlannerException {
-        String choice = input.nextLine();
-        switch (choice.toUpperCase().trim()) {
-            case "A" -> addOrLook("A");
-            case "G" -> planner.printCourse(planner.getCourse(Integer.parseInt(userInput("Enter position: "))));
-            case "R" -> removeCourse();
-            case "P" -> planner.printAllCourses();
-            case "F" -> Planner.filter(planner, userInput("Enter department: "));
-            case "L" -> addOrLook("L");
-            case "S" -> System.out.println("There are " + planner.size() + " courses in the planner.");
-            case "B" -> backup();
-            case "PB" -> printBackup();
-            case "RB" -> revertBackup();
-            case "Q" -> terminate();
-            default -> System.out.println("Please enter only the listed choices.");
+        String choice = readLine();
+        if (choice == null) {
+            terminate();
+            return;
+        }
+        String command = choice.toUpperCase().trim();
+        long startTime = PlannerMetrics.startTime(), allocatedBytes = PlannerMetrics.allocatedBytes();
+        inputNanos = 0;
+        try {
+            switch (command) {
+                case "A" -> addOrLook("A");
+                case "G" -> printCourse(Integer.parseInt(userInput("Enter position: ")));
+                case "R" -> removeCourse();
+                case "P" -> printTable(planner, null);
+                case "F" -> printFilter(userInput("Enter department: "));
+                case "FQ" -> queryCourses();
+                case "LV" -> listLevel();
+                case "L" -> addOrLook("L");
+                case "M" -> moveCourse();
+                case "SW" -> swapCourses();
+                case "SO" -> sortCourses();
+                case "S" -> out.println("There are " + planner.size() + " courses in the planner.");
+                case "C" -> printConflicts();
+                case "SG" -> generateSchedules();
+                case "PQ" -> addPrerequisite();
+                case "V" -> validateOrder();
+                case "B" -> backup();
+                case "PB" -> printBackup();
+                case "D" -> printDiff();
+                case "RB" -> revertBackup();
+                case "U" -> undo();
+                case "RD" -> redo();
+                case "SV" -> save();
+                case "LD" -> load();
+                case "IC" -> importCatalog();
+                case "AC" -> addFromCatalog();
+                case "SC" -> searchCatalog();
+                case "MT" -> out.println(PlannerMetrics.report());
+                case "Q" -> terminate();
+                default -> out.println("Please enter only the listed choices.");
+            }
+        } finally {
+            // Time spent waiting for the answers to prompts is not part of the command.
+            PlannerMetrics.command(command, startTime == 0 ? 0 : startTime + inputNanos, allocatedBytes);
         }
     }
 
@@ -145,38 +594,67 @@ public class PlannerManager {
      * an empty Planner object. The program prompts the user for a command
      * to execute an operation. Once a command has been chosen, the program
      * may ask the user for additional information if necessary, and perform
-     * the operation
+     * the operation. The number of changes that can be undone may be set with
+     * the "--history N" argument.
+     * <p>
+     * With the "--batch [file]" argument, the commands and their answers are read
+     * one per line from the file, or from standard input if no file is given, in the
+     * same order as they would be entered interactively. Menus and prompts are not
+     * printed and the results are written through a single buffered writer.
+     * <p>
+     * With the "--serve" argument, the commands are served to local network clients
+     * by a PlannerServer instead; see PlannerServer.main() for its arguments.
      *
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (Arrays.asList(args).contains("--serve")) {
+            PlannerServer.main(args);
+            return;
+        }
+
+        int depth = PlannerHistory.DEFAULT_DEPTH;
+        String batchFile = null;
+        interactive = true;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--history") && i + 1 < args.length)
+                depth = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--batch")) {
+                interactive = false;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--"))
+                    batchFile = args[++i];
+            }
+        }
+
+        PlannerMetrics.register();
         planner = new Planner();
-        input = new Scanner(System.in);
+        history = new PlannerHistory(planner, depth);
+        input = new BufferedReader(batchFile == null || batchFile.equals("-")
+                ? new InputStreamReader(System.in) : new FileReader(batchFile), BUFFER_SIZE);
+        out = interactive ? new PrintWriter(System.out, true)
+                : new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE));
         run = true;
 
-        while(run) {
-            System.out.println("""
-                    (A) Add Course
-                    (G) Get Course
-                    (R) Remove Course
-                    (P) Print Courses in Planner
-                    (F) Filter by Department Code
-                    (L) Look For Course
-                    (S) Size
-                    (B) Backup
-                    (PB) Print Courses in Backup
-                    (RB) Revert to Backup
-                    (Q) Quit
-                    """);
-            System.out.print("Enter a selection: ");
-            try {
-                commands();
-            } catch(NumberFormatException e){
-                System.out.println("Invalid input. Please enter a integer.");
-            }
-            catch(IllegalArgumentException | FullPlannerException | NegativeValueException e) {
-                System.out.println(e.getMessage());
+        try {
+            while(run) {
+                if (interactive) {
+                    out.println(MENU);
+                    out.print("Enter a selection: ");
+                    out.flush();
+                }
+                try {
+                    commands();
+                } catch(NumberFormatException e){
+                    out.println("Invalid input. Please enter a integer.");
+                }
+                catch(IllegalArgumentException | FullPlannerException | NegativeValueException e) {
+                    out.println(e.getMessage());
+                }
+                if (interactive)
+                    out.println();
             }
-            System.out.println();
+        } finally {
+            out.flush();
+            input.close();
         }
 
     }
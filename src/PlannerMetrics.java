@@ -0,0 +1,451 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * The PlannerMetrics class counts what the program does while it runs: the Courses added to
+ * and removed from Planners, the additions refused because a Planner was full, the backups and
+ * reverts, the sizes the Planners reach, and the latency and allocated bytes of every command
+ * of PlannerManager and PlannerServer.
+ * <p>
+ * Recording is meant to stay on in production. Counters are LongAdders, which threads update
+ * without contending with each other, and distributions are kept in histograms of fixed buckets
+ * that take one array increment per value, so recording an operation costs tens of
+ * nanoseconds. Metrics can be turned off at runtime, through setEnabled() or JMX, or at startup
+ * with -Dplanner.metrics=false, after which every recording method returns at once.
+ * <p>
+ * The metrics are published as the MBean "CoursePlanner:type=PlannerMetrics" once register()
+ * is called, and printed by the MT command.
+ *
+ * @author Zhen Wei Liao
+ */
+public final class PlannerMetrics {
+    public static final String OBJECT_NAME = "CoursePlanner:type=PlannerMetrics";
+    private static final int MAX_COMMANDS = 64;
+    private static final String OTHER = "other";
+
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("planner.metrics"));
+    private static final LongAdder ADDS = new LongAdder(), REMOVES = new LongAdder(), FULL = new LongAdder(),
+            BACKUPS = new LongAdder(), REVERTS = new LongAdder();
+    private static final Histogram SIZES = new Histogram();
+    private static final ConcurrentHashMap<String, Command> COMMANDS = new ConcurrentHashMap<>();
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private PlannerMetrics() {
+    }
+
+    /**
+     * A distribution of non-negative values in fixed buckets. Values below 4 have a bucket each;
+     * above that, every power of two is split into 4 buckets, so a value is known within 25%
+     * whatever its magnitude, in the manner of HdrHistogram with two significant bits.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 4 + 61 * 4;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Records a value. Negative values are recorded as 0.
+         *
+         * @param value
+         *      The value to record.
+         */
+        public void record(long value) {
+            if(value < 0)
+                value = 0;
+            buckets.incrementAndGet(bucket(value));
+            sum.add(value);
+            if(value > max.get())
+                max.accumulate(value);
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return
+         *      The count of values.
+         */
+        public long count() {
+            long count = 0;
+            for(int i = 0; i < BUCKETS; i++)
+                count += buckets.get(i);
+            return count;
+        }
+
+        /**
+         * Returns the mean of the recorded values.
+         *
+         * @return
+         *      The mean, 0 if no value was recorded.
+         */
+        public double mean() {
+            long count = count();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        /**
+         * Returns the largest recorded value.
+         *
+         * @return
+         *      The maximum, 0 if no value was recorded.
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * Returns an upper bound of a percentile of the recorded values.
+         *
+         * @param percentile
+         *      The percentile, within range 0 to 100.
+         *
+         * @return
+         *      The largest value of the bucket holding the percentile, no greater than the
+         *      maximum; 0 if no value was recorded.
+         */
+        public long percentile(double percentile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for(int i = 0; i < BUCKETS; i++)
+                total += counts[i] = buckets.get(i);
+            if(total == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if(seen >= rank)
+                    return Math.min(upperBound(i), max());
+            }
+            return max();
+        }
+
+        /**
+         * Clears the recorded values.
+         */
+        public void reset() {
+            for(int i = 0; i < BUCKETS; i++)
+                buckets.set(i, 0);
+            sum.reset();
+            max.reset();
+        }
+
+        private static int bucket(long value) {
+            if(value < 4)
+                return (int) value;
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return 4 + ((exponent - 2) << 2) + (int) ((value >>> (exponent - 2)) & 3);
+        }
+
+        private static long upperBound(int bucket) {
+            if(bucket < 4)
+                return bucket;
+            int shift = (bucket - 4) >>> 2, sub = (bucket - 4) & 3;
+            long next = (long) (5 + sub) << shift;
+            return next < 0 ? Long.MAX_VALUE : next - 1;
+        }
+    }
+
+    /**
+     * The latency and allocation of one command.
+     */
+    private static final class Command {
+        private final Histogram nanos = new Histogram(), bytes = new Histogram();
+    }
+
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return
+     *      True if operations are recorded, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the recording of metrics on or off. The values already recorded are kept.
+     *
+     * @param enabled
+     *      True to record operations, false to ignore them.
+     */
+    public static void setEnabled(boolean enabled) {
+        PlannerMetrics.enabled = enabled;
+    }
+
+    /**
+     * Records that a Course was added to a Planner.
+     *
+     * @param size
+     *      The number of Courses in the Planner after the addition.
+     */
+    public static void added(int size) {
+        if(!enabled)
+            return;
+        ADDS.increment();
+        SIZES.record(size);
+    }
+
+    /**
+     * Records that a Course was removed from a Planner.
+     *
+     * @param size
+     *      The number of Courses in the Planner after the removal.
+     */
+    public static void removed(int size) {
+        if(!enabled)
+            return;
+        REMOVES.increment();
+        SIZES.record(size);
+    }
+
+    /**
+     * Records that a Course was refused because the Planner was full.
+     */
+    public static void full() {
+        if(enabled)
+            FULL.increment();
+    }
+
+    /**
+     * Records that a backup of a Planner was made.
+     */
+    public static void backedUp() {
+        if(enabled)
+            BACKUPS.increment();
+    }
+
+    /**
+     * Records that a Planner was reverted to its backup.
+     */
+    public static void reverted() {
+        if(enabled)
+            REVERTS.increment();
+    }
+
+    /**
+     * Reads the clock at the start of a command.
+     *
+     * @return
+     *      The current time in nanoseconds, 0 if metrics are off.
+     */
+    public static long startTime() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reads the bytes allocated so far by the current thread at the start of a command.
+     *
+     * @return
+     *      The allocated bytes, -1 if metrics are off or the runtime does not report them.
+     */
+    public static long allocatedBytes() {
+        return enabled && ALLOCATION != null ? ALLOCATION.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Records the latency and allocation of a command that has finished.
+     *
+     * @param name
+     *      The name of the command, such as "A". Once many names have been recorded, new
+     *      ones are counted together as "other".
+     *
+     * @param startTime
+     *      The value of startTime() when the command started.
+     *
+     * @param allocatedBytes
+     *      The value of allocatedBytes() when the command started.
+     */
+    public static void command(String name, long startTime, long allocatedBytes) {
+        if(!enabled || startTime == 0)
+            return;
+        long nanos = System.nanoTime() - startTime;
+
+        Command command = COMMANDS.get(name);
+        if(command == null)
+            command = COMMANDS.computeIfAbsent(COMMANDS.size() < MAX_COMMANDS ? name : OTHER, k -> new Command());
+        command.nanos.record(nanos);
+
+        long bytes = allocatedBytes < 0 ? -1 : allocatedBytes();
+        if(bytes >= 0)
+            command.bytes.record(bytes - allocatedBytes);
+    }
+
+    /**
+     * Returns the distribution of Planner sizes after each addition and removal.
+     *
+     * @return
+     *      The histogram of sizes.
+     */
+    public static Histogram sizes() {
+        return SIZES;
+    }
+
+    /**
+     * Returns the latencies of a command.
+     *
+     * @param name
+     *      The name of the command.
+     *
+     * @return
+     *      The histogram of latencies in nanoseconds, null if the command has not been timed.
+     */
+    public static Histogram latency(String name) {
+        Command command = COMMANDS.get(name);
+        return command == null ? null : command.nanos;
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        ADDS.reset();
+        REMOVES.reset();
+        FULL.reset();
+        BACKUPS.reset();
+        REVERTS.reset();
+        SIZES.reset();
+        COMMANDS.clear();
+    }
+
+    /**
+     * Returns every metric as text, with a line per command.
+     *
+     * @return
+     *      The report of the metrics.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        report.append("Planner metrics (").append(enabled ? "enabled" : "disabled").append("):\n");
+        report.append(String.format(Locale.ROOT, "Adds: %d, removes: %d, full planner errors: %d, backups: %d, reverts: %d%n",
+                ADDS.sum(), REMOVES.sum(), FULL.sum(), BACKUPS.sum(), REVERTS.sum()));
+        report.append(String.format(Locale.ROOT, "Planner size: mean %.1f, median %d, 99th percentile %d, max %d%n",
+                SIZES.mean(), SIZES.percentile(50), SIZES.percentile(99), SIZES.max()));
+
+        if(COMMANDS.isEmpty())
+            return report.append("No commands timed.").toString();
+
+        report.append(String.format(Locale.ROOT, "%-8s%10s%12s%12s%12s%12s%14s%n",
+                "Command", "Count", "Mean(us)", "p50(us)", "p99(us)", "Max(us)", "Bytes/op"));
+        for(Map.Entry<String, Command> entry : new TreeMap<>(COMMANDS).entrySet()) {
+            Histogram nanos = entry.getValue().nanos, bytes = entry.getValue().bytes;
+            report.append(String.format(Locale.ROOT, "%-8s%10d%12.1f%12.1f%12.1f%12.1f%14s%n", entry.getKey(), nanos.count(),
+                    nanos.mean() / 1000, nanos.percentile(50) / 1000.0, nanos.percentile(99) / 1000.0, nanos.max() / 1000.0,
+                    bytes.count() == 0 ? "n/a" : String.format(Locale.ROOT, "%.0f", bytes.mean())));
+        }
+        return report.toString().stripTrailing();
+    }
+
+    /**
+     * Publishes the metrics to the platform MBean server. Calling it again has no effect.
+     */
+    public static synchronized void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!server.isRegistered(name))
+                server.registerMBean(new StandardMBean(new Bean(), PlannerMetricsMBean.class), name);
+        } catch(JMException e) {
+            System.err.println("Error: Unable to register metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the bean reporting the bytes allocated by a thread, or null if the runtime does
+     * not support it.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!(threads instanceof com.sun.management.ThreadMXBean))
+            return null;
+
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        if(!allocation.isThreadAllocatedMemorySupported())
+            return null;
+        allocation.setThreadAllocatedMemoryEnabled(true);
+        return allocation;
+    }
+
+    /**
+     * The MBean exposing the metrics.
+     */
+    private static final class Bean implements PlannerMetricsMBean {
+        @Override
+        public boolean isEnabled() {
+            return PlannerMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            PlannerMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public long getAdds() {
+            return ADDS.sum();
+        }
+
+        @Override
+        public long getRemoves() {
+            return REMOVES.sum();
+        }
+
+        @Override
+        public long getFullPlannerExceptions() {
+            return FULL.sum();
+        }
+
+        @Override
+        public long getBackups() {
+            return BACKUPS.sum();
+        }
+
+        @Override
+        public long getReverts() {
+            return REVERTS.sum();
+        }
+
+        @Override
+        public double getMeanPlannerSize() {
+            return SIZES.mean();
+        }
+
+        @Override
+        public long getMaxPlannerSize() {
+            return SIZES.max();
+        }
+
+        @Override
+        public String[] getCommands() {
+            return new TreeMap<>(COMMANDS).keySet().toArray(new String[0]);
+        }
+
+        @Override
+        public double getLatencyMicros(String command, double percentile) {
+            Histogram latency = latency(command);
+            return latency == null ? 0 : latency.percentile(percentile) / 1000.0;
+        }
+
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            PlannerMetrics.reset();
+        }
+    }
+}
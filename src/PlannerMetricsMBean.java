@@ -0,0 +1,115 @@
+/**
+ * The PlannerMetricsMBean interface is the management interface of PlannerMetrics, through
+ * which a JMX client such as JConsole can read the counters and turn the metrics on or off
+ * while the program runs.
+ *
+ * @author Zhen Wei Liao
+ */
+public interface PlannerMetricsMBean {
+    /**
+     * Returns whether metrics are being recorded.
+     *
+     * @return
+     *      True if operations are recorded, false otherwise.
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns the recording of metrics on or off. The values already recorded are kept.
+     *
+     * @param enabled
+     *      True to record operations, false to ignore them.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the number of Courses added to Planners.
+     *
+     * @return
+     *      The number of successful additions.
+     */
+    long getAdds();
+
+    /**
+     * Returns the number of Courses removed from Planners.
+     *
+     * @return
+     *      The number of successful removals.
+     */
+    long getRemoves();
+
+    /**
+     * Returns the number of additions refused because a Planner was full.
+     *
+     * @return
+     *      The number of FullPlannerExceptions thrown.
+     */
+    long getFullPlannerExceptions();
+
+    /**
+     * Returns the number of backups made.
+     *
+     * @return
+     *      The number of backups.
+     */
+    long getBackups();
+
+    /**
+     * Returns the number of Planners reverted to their backup.
+     *
+     * @return
+     *      The number of reverts.
+     */
+    long getReverts();
+
+    /**
+     * Returns the average size of the Planners after a Course was added or removed.
+     *
+     * @return
+     *      The mean number of Courses, 0 if nothing was recorded.
+     */
+    double getMeanPlannerSize();
+
+    /**
+     * Returns the largest size reached by a Planner.
+     *
+     * @return
+     *      The maximum number of Courses, 0 if nothing was recorded.
+     */
+    long getMaxPlannerSize();
+
+    /**
+     * Returns the commands that have been timed.
+     *
+     * @return
+     *      The names of the commands in alphabetical order.
+     */
+    String[] getCommands();
+
+    /**
+     * Returns a percentile of the latency of a command.
+     *
+     * @param command
+     *      The name of the command, such as "A".
+     *
+     * @param percentile
+     *      The percentile, within range 0 to 100.
+     *
+     * @return
+     *      The latency in microseconds, 0 if the command has not been timed.
+     */
+    double getLatencyMicros(String command, double percentile);
+
+    /**
+     * Returns every metric as text.
+     *
+     * @return
+     *      The report printed by the MT command.
+     */
+    String getReport();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
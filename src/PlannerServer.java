@@ -0,0 +1,374 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PlannerServer class serves the commands of PlannerManager over TCP connections on the
+ * local machine, using a PlannerService to hold the Planner of each student.
+ * <p>
+ * Each request is one line of UTF-8 text: a command followed by its arguments, separated by
+ * tabs. The reply is the output the command would print in PlannerManager, followed by a line
+ * holding a single ".". A connection first selects a student with "ID", then may send:
+ * <pre>
+ *   ID  student                                            select the student
+ *   A   name department code section instructor position [meetings]
+ *                                                      add a course
+ *   G   position                                           get a course
+ *   R   position                                           remove a course
+ *   P                                                      print the planner
+ *   F   department                                         filter by department
+ *   L   name department code section instructor            look for a course
+ *   S                                                      size
+ *   C                                                      list time conflicts
+ *   B                                                      backup
+ *   PB                                                     print the backup
+ *   D                                                      diff the backup and the planner
+ *   RB                                                     revert to the backup
+ *   MT                                                     print the metrics of the server
+ *   Q                                                      close the connection
+ * </pre>
+ * A request that fails, even because a planner cannot be loaded or saved, is answered with
+ * an error message and the connection stays open for the next request.
+ * Each connection is served by its own thread. On Java 21 or later these are virtual
+ * threads, so a single server can hold many thousands of idle connections; on earlier
+ * versions a cached pool of platform threads is used instead.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerServer implements Closeable {
+    public static final int DEFAULT_PORT = 7070;
+    public static final String END = ".";
+
+    private final PlannerService service;
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor creates a PlannerServer listening on the loopback address and starts
+     * accepting connections.
+     *
+     * @param service
+     *      The PlannerService holding the Planners of the students.
+     *
+     * @param port
+     *      The port to listen on, or 0 for any free port.
+     *
+     * @throws IOException
+     *      when the port cannot be opened.
+     */
+    public PlannerServer(PlannerService service, int port) throws IOException {
+        this.service = service;
+        socket = new ServerSocket(port, 4096, InetAddress.getLoopbackAddress());
+        connections = newConnectionExecutor();
+        acceptor = new Thread(this::accept, "planner-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return
+     *      The local port.
+     */
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and saves the changed Planners.
+     *
+     * @throws IOException
+     *      when a Planner cannot be saved.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        socket.close();
+        connections.shutdownNow();
+        try {
+            acceptor.join();
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        service.flush();
+    }
+
+    /**
+     * Returns an executor running each task on a new virtual thread when the runtime
+     * supports them, and on a cached pool of platform threads otherwise.
+     *
+     * @return
+     *      The executor serving the connections.
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "planner-server-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void accept() {
+        while(running) {
+            try {
+                Socket client = socket.accept();
+                connections.execute(() -> serve(client));
+            } catch(IOException e) {
+                if(running)
+                    System.out.println("Error: Unable to accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the requests of a connection and writes their replies until the client quits
+     * or disconnects.
+     */
+    private void serve(Socket client) {
+        try(client;
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            String[] student = new String[1];
+            String line;
+            while((line = in.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                boolean quit = fields[0].equalsIgnoreCase("Q");
+
+                StringBuilder reply = new StringBuilder();
+                long startTime = PlannerMetrics.startTime(), allocatedBytes = PlannerMetrics.allocatedBytes();
+                try {
+                    handle(student, fields, reply);
+                } catch(NumberFormatException e) {
+                    reply.append("Invalid input. Please enter a integer.\n");
+                } catch(IllegalArgumentException | FullPlannerException | NegativeValueException e) {
+                    reply.append(e.getMessage()).append('\n');
+                } catch(IOException | UncheckedIOException e) {
+                    reply.append("Error: Unable to load or save the planner.\n");
+                    System.out.println("Error: Unable to load or save a planner: " + e.getMessage());
+                } catch(RuntimeException e) {
+                    reply.append("Error: Unable to complete the request.\n");
+                    System.out.println("Error: Request " + fields[0] + " failed: " + e);
+                }
+                PlannerMetrics.command(fields[0].toUpperCase(), startTime, allocatedBytes);
+                out.append(reply).append(END).append('\n');
+                out.flush();
+                if(quit)
+                    return;
+            }
+        } catch(SocketException e) {
+            // The client disconnected or the server is closing.
+        } catch(IOException e) {
+            if(running)
+                System.out.println("Error: Connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs one request for the selected student and appends its output to the reply.
+     */
+    private void handle(String[] student, String[] fields, StringBuilder reply)
+            throws IOException, FullPlannerException, NegativeValueException {
+        String command = fields[0].toUpperCase();
+        if(command.equals("Q")) {
+            reply.append("Program terminating successfully...\n");
+            return;
+        }
+        if(command.equals("MT")) {
+            reply.append(PlannerMetrics.report()).append('\n');
+            return;
+        }
+        if(command.equals("ID")) {
+            String id = argument(fields, 1);
+            service.read(id, planner -> null);
+            student[0] = id;
+            reply.append("Student ").append(id).append(" selected.\n");
+            return;
+        }
+        if(student[0] == null)
+            throw new IllegalArgumentException("Error: Select a student with ID first.");
+
+        String id = student[0];
+        switch(command) {
+            case "A" -> {
+                Course.Builder builder = course(fields);
+                int position = Integer.parseInt(argument(fields, 6));
+                if(fields.length > 7)
+                    builder.meetings(MeetingTime.parse(fields[7]));
+                Course course = builder.build();
+                List<Course> conflicts = service.update(id, planner -> {
+                    planner.addCourse(course, position);
+                    return planner.conflicts(course);
+                });
+                reply.append(course).append(" successfully added to planner.\n");
+                if(!conflicts.isEmpty()) {
+                    reply.append("Warning: ").append(course).append(" conflicts with ");
+                    for(int i = 0; i < conflicts.size(); i++)
+                        reply.append(i == 0 ? "" : ", ").append(conflicts.get(i));
+                    reply.append(".\n");
+                }
+            }
+            case "G" -> {
+                int position = Integer.parseInt(argument(fields, 1));
+                service.read(id, planner -> table(planner, new int[]{position}, reply));
+            }
+            case "R" -> {
+                int position = Integer.parseInt(argument(fields, 1));
+                Course removed = service.update(id, planner -> {
+                    Course course = planner.getCourse(position);
+                    planner.removeCourse(position);
+                    return course;
+                });
+                reply.append(removed).append(" has been successfully removed from the planner.\n");
+            }
+            case "P" -> service.read(id, planner -> table(planner, null, reply));
+            case "F" -> {
+                String department = argument(fields, 1);
+                service.read(id, planner -> table(planner, planner.filter(department), reply));
+            }
+            case "L" -> {
+                Course course = course(fields).build();
+                int index = service.read(id, planner -> planner.index(course));
+                if(index != -1)
+                    reply.append(course).append(" is found in the planner at position ").append(index + 1).append('\n');
+                else
+                    reply.append("Course not found.\n");
+            }
+            case "S" -> {
+                int size = service.read(id, Planner::size);
+                reply.append("There are ").append(size).append(" courses in the planner.\n");
+            }
+            case "C" -> {
+                List<Course[]> pairs = service.read(id, Planner::conflictingPairs);
+                if(pairs.isEmpty())
+                    reply.append("No time conflicts in the planner.\n");
+                for(Course[] pair : pairs)
+                    reply.append(pair[0]).append(" conflicts with ").append(pair[1]).append(".\n");
+            }
+            case "B" -> {
+                service.backup(id);
+                reply.append("Created a backup of the current planner.\n");
+            }
+            case "PB" -> {
+                if(service.readBackup(id, planner -> table(planner, null, reply)) == null)
+                    reply.append("No record of backup.\n");
+            }
+            case "D" -> {
+                Planner backup = service.readBackup(id, Planner::makeCopy);
+                if(backup == null) {
+                    reply.append("No record of backup.\n");
+                    break;
+                }
+                PlannerDiff diff = service.read(id, planner -> PlannerDiff.between(backup, planner));
+                if(diff.isEmpty())
+                    reply.append("Planner is unchanged since the backup.\n");
+                for(PlannerDiff.Change change : diff.getChanges())
+                    reply.append(change).append('\n');
+            }
+            case "RB" -> {
+                if(service.revert(id))
+                    reply.append("Planner successfully reverted to the backup copy.\n");
+                else
+                    reply.append("No record of backup.......Planner unmodified.\n");
+            }
+            default -> reply.append("Please enter only the listed choices.\n");
+        }
+    }
+
+    /**
+     * Reads the name, department, code, section and instructor arguments of a Course.
+     */
+    private static Course.Builder course(String[] fields) throws NegativeValueException {
+        return Course.builder()
+                .name(argument(fields, 1))
+                .department(argument(fields, 2))
+                .code(Integer.parseInt(argument(fields, 3)))
+                .section((byte) Integer.parseInt(argument(fields, 4)))
+                .instructor(argument(fields, 5));
+    }
+
+    /**
+     * Returns an argument of a request.
+     */
+    private static String argument(String[] fields, int index) throws IllegalArgumentException {
+        if(index >= fields.length)
+            throw new IllegalArgumentException("Error: Missing argument " + index + " for " + fields[0] + ".");
+        return fields[index];
+    }
+
+    /**
+     * Appends a table of the planner to the reply. Returns a non-null value so that
+     * readBackup() can tell a printed backup from a missing one.
+     */
+    private static Boolean table(Planner planner, int[] positions, StringBuilder reply) {
+        try {
+            if(positions == null)
+                planner.writeTable(reply);
+            else
+                planner.writeTable(reply, positions);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        reply.append('\n');
+        return Boolean.TRUE;
+    }
+
+    /**
+     * Runs a PlannerServer until the process is stopped. The arguments are
+     * "--port N" (default 7070), "--data DIR" (default "planners") for the saved Planners
+     * and "--capacity N" (default 10000) for the number of Planners kept in memory.
+     *
+     * @param args
+     *      The command line arguments.
+     *
+     * @throws IOException
+     *      when the server cannot be started.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT, capacity = 10000;
+        Path data = Path.of("planners");
+        for(int i = 0; i + 1 < args.length; i++) {
+            switch(args[i]) {
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--data" -> data = Path.of(args[++i]);
+                case "--capacity" -> capacity = Integer.parseInt(args[++i]);
+                default -> { }
+            }
+        }
+
+        PlannerMetrics.register();
+        PlannerServer server = new PlannerServer(new PlannerService(data, capacity, Planner.UNLIMITED), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch(IOException e) {
+                System.out.println("Error: Unable to save planners: " + e.getMessage());
+            }
+        }));
+        System.out.println("Planner server listening on port " + server.getPort() + ".");
+    }
+}
@@ -0,0 +1,543 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PlannerService class manages the Planners of many students, each identified by a
+ * student id. The most recently used Planners are kept in memory, up to a fixed number;
+ * when more are needed, the least recently used one is saved to a PlannerFile in the
+ * service directory and dropped, and it is loaded again the next time it is used. Each
+ * student may also keep one backup of their Planner, which is saved along with it.
+ * <p>
+ * A Planner is only reached through read() and update(), which run an action on it while
+ * no other thread uses the same Planner. Actions on different students run in parallel.
+ * Only the choice of the Planners kept in memory is made under a lock shared by every
+ * student: a Planner is loaded by the first action that needs it, under the lock of its
+ * student alone, and a Planner chosen to leave memory is saved by the thread that needs
+ * the room, outside the shared lock. A request for a Planner that is being saved takes it
+ * back without reading it from disk. If the Planner cannot be saved, it stays in memory and
+ * the request that needed the room fails, so no more than the capacity is ever held.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PlannerService {
+    public static final String EXTENSION = ".cpln";
+    public static final String BACKUP_EXTENSION = ".backup.cpln";
+
+    /**
+     * An action run on the Planner of a student.
+     *
+     * @param <T>
+     *      Type of the result of the action.
+     */
+    public interface PlannerAction<T> {
+        /**
+         * Runs the action.
+         *
+         * @param planner
+         *      The Planner of the student. It must not be used after the action returns.
+         *
+         * @return
+         *      The result of the action.
+         *
+         * @throws FullPlannerException
+         *      when the action adds a Course to a full Planner.
+         */
+        T apply(Planner planner) throws FullPlannerException;
+    }
+
+    /**
+     * A student whose Planner is in memory.
+     */
+    private static final class Entry {
+        private final String id;
+        private Planner planner;
+        private Planner backup;
+        private boolean loaded, dirty, evicted;
+
+        Entry(String id) {
+            this.id = id;
+        }
+    }
+
+    private final Path directory;
+    private final int capacity;
+    private final int maxCourses;
+    private final LinkedHashMap<String, Entry> resident;
+    private final HashMap<String, Entry> spilling = new HashMap<>();
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(),
+            loads = new LongAdder(), evictions = new LongAdder(), saves = new LongAdder();
+
+    /**
+     * Constructor creates a PlannerService storing its Planners in the given directory.
+     *
+     * @param directory
+     *      The directory of the saved Planners, created if it does not exist.
+     *
+     * @param capacity
+     *      The number of Planners kept in memory, at least 1.
+     *
+     * @param maxCourses
+     *      The maximum number of courses of a new Planner, or Planner.UNLIMITED for no limit.
+     *
+     * @throws IllegalArgumentException
+     *      when capacity is less than 1 or maxCourses is negative.
+     *
+     * @throws IOException
+     *      when the directory cannot be created.
+     */
+    public PlannerService(Path directory, int capacity, int maxCourses) throws IllegalArgumentException, IOException {
+        if(capacity < 1)
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        if(maxCourses < 0)
+            throw new IllegalArgumentException("Invalid input. Maximum number of courses can't be negative.");
+
+        this.directory = Files.createDirectories(directory);
+        this.capacity = capacity;
+        this.maxCourses = maxCourses;
+        resident = new LinkedHashMap<>(Math.min(capacity, 1 << 16), 0.75f, true);
+    }
+
+    /**
+     * Runs an action that reads the Planner of a student without modifying it.
+     *
+     * @param studentId
+     *      The id of the student, made of letters, digits, '-' and '_'.
+     *
+     * @param action
+     *      The action to run.
+     *
+     * @param <T>
+     *      Type of the result of the action.
+     *
+     * @return
+     *      The result of the action.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid, or as thrown by the action.
+     *
+     * @throws IOException
+     *      when a Planner cannot be loaded or saved.
+     */
+    public <T> T read(String studentId, PlannerAction<T> action) throws IllegalArgumentException, IOException {
+        try {
+            return run(studentId, action, false);
+        } catch(FullPlannerException e) {
+            throw new IllegalStateException("Error: A read action added a course.", e);
+        }
+    }
+
+    /**
+     * Runs an action that may modify the Planner of a student.
+     *
+     * @param studentId
+     *      The id of the student, made of letters, digits, '-' and '_'.
+     *
+     * @param action
+     *      The action to run.
+     *
+     * @param <T>
+     *      Type of the result of the action.
+     *
+     * @return
+     *      The result of the action.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid, or as thrown by the action.
+     *
+     * @throws FullPlannerException
+     *      as thrown by the action.
+     *
+     * @throws IOException
+     *      when a Planner cannot be loaded or saved.
+     */
+    public <T> T update(String studentId, PlannerAction<T> action) throws IllegalArgumentException, FullPlannerException, IOException {
+        return run(studentId, action, true);
+    }
+
+    /**
+     * Replaces the backup of a student with a copy of their Planner.
+     *
+     * @param studentId
+     *      The id of the student.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid.
+     *
+     * @throws IOException
+     *      when a Planner cannot be loaded or saved.
+     */
+    public void backup(String studentId) throws IllegalArgumentException, IOException {
+        while(true) {
+            Entry entry = entry(studentId);
+            synchronized(entry) {
+                if(entry.evicted)
+                    continue;
+                load(entry);
+                entry.backup = entry.planner.makeCopy();
+                entry.dirty = true;
+                PlannerMetrics.backedUp();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replaces the Planner of a student with a copy of their backup.
+     *
+     * @param studentId
+     *      The id of the student.
+     *
+     * @return
+     *      True if the Planner was reverted, false if the student has no backup.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid.
+     *
+     * @throws IOException
+     *      when a Planner cannot be loaded or saved.
+     */
+    public boolean revert(String studentId) throws IllegalArgumentException, IOException {
+        while(true) {
+            Entry entry = entry(studentId);
+            synchronized(entry) {
+                if(entry.evicted)
+                    continue;
+                load(entry);
+                if(entry.backup == null)
+                    return false;
+                entry.planner.restore(entry.backup);
+                entry.dirty = true;
+                PlannerMetrics.reverted();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Runs an action on the backup of a student without modifying it.
+     *
+     * @param studentId
+     *      The id of the student.
+     *
+     * @param action
+     *      The action to run.
+     *
+     * @param <T>
+     *      Type of the result of the action.
+     *
+     * @return
+     *      The result of the action, null if the student has no backup.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid, or as thrown by the action.
+     *
+     * @throws IOException
+     *      when a Planner cannot be loaded or saved.
+     */
+    public <T> T readBackup(String studentId, PlannerAction<T> action) throws IllegalArgumentException, IOException {
+        while(true) {
+            Entry entry = entry(studentId);
+            synchronized(entry) {
+                if(entry.evicted)
+                    continue;
+                load(entry);
+                try {
+                    return entry.backup == null ? null : action.apply(entry.backup);
+                } catch(FullPlannerException e) {
+                    throw new IllegalStateException("Error: A read action added a course.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the Planner and the backup of a student, in memory and on disk.
+     *
+     * @param studentId
+     *      The id of the student.
+     *
+     * @throws IllegalArgumentException
+     *      when the student id is invalid.
+     *
+     * @throws IOException
+     *      when the saved files cannot be deleted.
+     */
+    public void remove(String studentId) throws IllegalArgumentException, IOException {
+        while(true) {
+            Entry entry = entry(studentId);
+            synchronized(entry) {
+                if(entry.evicted)
+                    continue;
+                Files.deleteIfExists(file(studentId, EXTENSION));
+                Files.deleteIfExists(file(studentId, BACKUP_EXTENSION));
+                entry.evicted = true;
+                entry.dirty = false;
+                synchronized(resident) {
+                    resident.remove(studentId, entry);
+                    resident.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Saves every Planner in memory that changed since it was loaded or last saved.
+     *
+     * @throws IOException
+     *      when a Planner cannot be saved.
+     */
+    public void flush() throws IOException {
+        ArrayList<Entry> entries;
+        synchronized(resident) {
+            entries = new ArrayList<>(resident.values());
+            entries.addAll(spilling.values());
+        }
+        for(Entry entry : entries) {
+            synchronized(entry) {
+                if(!entry.evicted)
+                    save(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of Planners in memory.
+     *
+     * @return
+     *      The number of resident Planners, including those being saved to leave memory,
+     *      at most the capacity.
+     */
+    public int residentSize() {
+        synchronized(resident) {
+            return resident.size() + spilling.size();
+        }
+    }
+
+    /**
+     * Returns the number of requests that found the Planner in memory.
+     *
+     * @return
+     *      The number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests that did not find the Planner in memory.
+     *
+     * @return
+     *      The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of Planners loaded from disk.
+     *
+     * @return
+     *      The number of loads.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the number of Planners dropped from memory to make room for others.
+     *
+     * @return
+     *      The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of Planners saved to disk.
+     *
+     * @return
+     *      The number of saves.
+     */
+    public long getSaves() {
+        return saves.sum();
+    }
+
+    /**
+     * Returns a one-line report of the cache statistics.
+     *
+     * @return
+     *      The report.
+     */
+    public String report() {
+        long hits = getHits(), misses = getMisses();
+        long rate = hits + misses == 0 ? 0 : hits * 100 / (hits + misses);
+        return "Planner service: " + residentSize() + " of " + capacity + " planners in memory, "
+                + hits + " hits, " + misses + " misses (" + rate + "% hit rate), " + getLoads()
+                + " loads, " + getEvictions() + " evictions, " + getSaves() + " saves.";
+    }
+
+    /**
+     * Runs an action on the Planner of a student, retrying if the Planner is evicted between
+     * finding it and locking it.
+     */
+    private <T> T run(String studentId, PlannerAction<T> action, boolean modifies) throws FullPlannerException, IOException {
+        while(true) {
+            Entry entry = entry(studentId);
+            synchronized(entry) {
+                if(entry.evicted)
+                    continue;
+                load(entry);
+                if(modifies)
+                    entry.dirty = true;
+                return action.apply(entry.planner);
+            }
+        }
+    }
+
+    /**
+     * Returns the entry of a student, making room for it if needed. Only the maps are changed
+     * under the shared lock; the least recently used entries are saved by spill() outside it,
+     * and the Planner of the returned entry is loaded by load() under the entry's own lock.
+     */
+    private Entry entry(String studentId) throws IllegalArgumentException, IOException {
+        file(studentId, EXTENSION);
+        while(true) {
+            Entry victim;
+            synchronized(resident) {
+                Entry entry = resident.get(studentId);
+                if(entry == null) {
+                    entry = spilling.remove(studentId);
+                    if(entry != null)
+                        resident.put(studentId, entry);
+                }
+                if(entry != null) {
+                    hits.increment();
+                    return entry;
+                }
+                if(resident.size() + spilling.size() < capacity) {
+                    entry = new Entry(studentId);
+                    resident.put(studentId, entry);
+                    misses.increment();
+                    return entry;
+                }
+
+                if(resident.isEmpty()) {
+                    try {
+                        resident.wait();
+                    } catch(InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Error: Interrupted while waiting for room for a planner.");
+                    }
+                    continue;
+                }
+                victim = resident.values().iterator().next();
+                resident.remove(victim.id);
+                spilling.put(victim.id, victim);
+            }
+            spill(victim);
+        }
+    }
+
+    /**
+     * Saves an entry chosen to leave memory and drops it, unless it was taken back while
+     * waiting for its lock or being saved. An entry that cannot be saved is put back.
+     */
+    private void spill(Entry victim) throws IOException {
+        synchronized(victim) {
+            synchronized(resident) {
+                if(spilling.get(victim.id) != victim)
+                    return;
+            }
+
+            IOException failure = null;
+            try {
+                save(victim);
+            } catch(IOException e) {
+                failure = e;
+            }
+
+            synchronized(resident) {
+                if(spilling.get(victim.id) == victim) {
+                    spilling.remove(victim.id);
+                    if(failure == null) {
+                        victim.evicted = true;
+                        evictions.increment();
+                    } else {
+                        resident.put(victim.id, victim);
+                    }
+                }
+                resident.notifyAll();
+            }
+            if(failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Loads the Planner and the backup of an entry from disk, or creates an empty Planner,
+     * the first time the entry is used. The caller holds the lock of the entry.
+     */
+    private void load(Entry entry) throws IOException {
+        if(entry.loaded)
+            return;
+
+        Path file = file(entry.id, EXTENSION);
+        if(Files.exists(file)) {
+            Planner planner = PlannerFile.load(file);
+            Path backup = file(entry.id, BACKUP_EXTENSION);
+            entry.backup = Files.exists(backup) ? PlannerFile.load(backup) : null;
+            entry.planner = planner;
+            loads.increment();
+        } else {
+            entry.planner = new Planner(maxCourses);
+        }
+        entry.loaded = true;
+    }
+
+    /**
+     * Saves the Planner and the backup of an entry if they changed. Each file is written
+     * beside its destination first and then moved over it, so a failed save never leaves a
+     * partial file behind.
+     */
+    private void save(Entry entry) throws IOException {
+        if(!entry.loaded || !entry.dirty)
+            return;
+
+        write(entry.planner, file(entry.id, EXTENSION));
+        Path backup = file(entry.id, BACKUP_EXTENSION);
+        if(entry.backup == null)
+            Files.deleteIfExists(backup);
+        else
+            write(entry.backup, backup);
+
+        entry.dirty = false;
+        saves.increment();
+    }
+
+    /**
+     * Saves a Planner through a temporary file beside the destination.
+     */
+    private static void write(Planner planner, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        PlannerFile.save(planner, temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the file of a student with the given extension.
+     */
+    private Path file(String studentId, String extension) throws IllegalArgumentException {
+        if(studentId == null || !studentId.matches("[A-Za-z0-9_-]{1,64}"))
+            throw new IllegalArgumentException("Invalid student id: " + studentId);
+        return directory.resolve(studentId + extension);
+    }
+}
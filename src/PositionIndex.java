@@ -0,0 +1,170 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The PositionIndex class maps keys to the sorted positions (0-based) at which they
+ * appear in an ordered list such as a Planner. The index is kept in sync by reporting
+ * every insertion and removal; positions recorded for the following entries are shifted
+ * so that they always match the current order of the list. The index also remembers which
+ * key owns each position, so a shift only visits the entries after the edit, in time
+ * proportional to their number, however many keys the index holds.
+ *
+ * @param <K>
+ *      Type of the keys being indexed.
+ *
+ * @author Zhen Wei Liao
+ */
+class PositionIndex<K> {
+
+    /**
+     * Sorted, growable list of positions recorded for a single key.
+     */
+    private static final class Positions {
+        private int[] items = new int[2];
+        private int size;
+    }
+
+    private final HashMap<K, Positions> map = new HashMap<>();
+    private Positions[] owners = new Positions[16];
+    private int length;
+
+    /**
+     * Records that the key has been inserted at the given position.
+     *
+     * @param key
+     *      The key of the inserted entry.
+     *
+     * @param position
+     *      The 0-based position of the inserted entry.
+     *
+     * @param shiftFollowing
+     *      True if entries at or after the position moved one slot back, false if the
+     *      entry was appended to the end of the list or fills a position left by a removal
+     *      that did not shift.
+     */
+    void insert(K key, int position, boolean shiftFollowing) {
+        if(length == owners.length)
+            owners = Arrays.copyOf(owners, length << 1);
+        if(shiftFollowing) {
+            for(int i = length - 1; i >= position; i--)
+                move(i, i + 1);
+            System.arraycopy(owners, position, owners, position + 1, length - position);
+            length++;
+        } else if(position >= length) {
+            length = position + 1;
+        }
+
+        Positions positions = map.computeIfAbsent(key, k -> new Positions());
+        int slot = search(positions, position);
+        if(positions.size == positions.items.length)
+            positions.items = Arrays.copyOf(positions.items, positions.size << 1);
+
+        System.arraycopy(positions.items, slot, positions.items, slot + 1, positions.size - slot);
+        positions.items[slot] = position;
+        positions.size++;
+        owners[position] = positions;
+    }
+
+    /**
+     * Records that the key has been removed from the given position.
+     *
+     * @param key
+     *      The key of the removed entry.
+     *
+     * @param position
+     *      The 0-based position the entry was removed from.
+     *
+     * @param shiftFollowing
+     *      True if entries after the position moved one slot forward, false if the
+     *      entry was the last one in the list or its position is about to be filled again.
+     */
+    void remove(K key, int position, boolean shiftFollowing) {
+        Positions positions = map.get(key);
+        if(positions != null) {
+            int slot = search(positions, position);
+            if(slot < positions.size && positions.items[slot] == position) {
+                System.arraycopy(positions.items, slot + 1, positions.items, slot, positions.size - slot - 1);
+                if(--positions.size == 0)
+                    map.remove(key);
+            }
+        }
+
+        if(position >= length)
+            return;
+        owners[position] = null;
+        if(shiftFollowing) {
+            for(int i = position + 1; i < length; i++)
+                move(i, i - 1);
+            System.arraycopy(owners, position + 1, owners, position, length - position - 1);
+            owners[--length] = null;
+        } else if(position == length - 1) {
+            length--;
+        }
+    }
+
+    /**
+     * Returns the first position of the key.
+     *
+     * @param key
+     *      The key to look for.
+     *
+     * @return
+     *      The lowest 0-based position recorded for the key, -1 if the key is not indexed.
+     */
+    int first(K key) {
+        Positions positions = map.get(key);
+        return positions == null ? -1 : positions.items[0];
+    }
+
+    /**
+     * Determines whether the key is indexed.
+     *
+     * @param key
+     *      The key to look for.
+     *
+     * @return
+     *      True if at least one position is recorded for the key, false otherwise.
+     */
+    boolean contains(K key) {
+        return map.containsKey(key);
+    }
+
+    /**
+     * Returns every position recorded for the key in ascending order.
+     *
+     * @param key
+     *      The key to look for.
+     *
+     * @return
+     *      A new array of 0-based positions, empty if the key is not indexed.
+     */
+    int[] positions(K key) {
+        Positions positions = map.get(key);
+        return positions == null ? new int[0] : Arrays.copyOf(positions.items, positions.size);
+    }
+
+    /**
+     * Changes a recorded position to the position next to it. Shifting toward the edit in the
+     * order of the entries keeps the positions of each key sorted and distinct.
+     */
+    private void move(int from, int to) {
+        Positions positions = owners[from];
+        if(positions != null)
+            positions.items[search(positions, from)] = to;
+    }
+
+    /**
+     * Returns the slot of the first recorded position that is greater than or equal to position.
+     */
+    private static int search(Positions positions, int position) {
+        int low = 0, high = positions.size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(positions.items[mid] < position)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The PrerequisiteGraph class records which courses must be taken before others. Courses are
+ * identified by department and code only, so every section of a course shares its
+ * prerequisites.
+ * <p>
+ * The graph always keeps a topological order of its courses, in which every prerequisite
+ * comes before the courses that require it. When a new prerequisite contradicts the order, only
+ * the courses between its two ends are searched and moved (the Pearce-Kelly algorithm), which
+ * also detects a prerequisite that would make a cycle before it is added. With the order at
+ * hand, sorting a set of courses and validating a Planner take linear time in their size.
+ *
+ * @author Zhen Wei Liao
+ */
+public class PrerequisiteGraph {
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[16];
+    private int[][] successors = new int[16][], predecessors = new int[16][];
+    private int[] successorCounts = new int[16], predecessorCounts = new int[16];
+    private int[] order = new int[16], nodeAt = new int[16];
+    private int[] visited = new int[16], parent = new int[16];
+    private int nodes, edges, epoch;
+
+    /**
+     * Constructor creates an empty PrerequisiteGraph.
+     */
+    public PrerequisiteGraph() {
+    }
+
+    /**
+     * Records that a course must be taken after another one.
+     *
+     * @param department
+     *      The department of the course.
+     *
+     * @param code
+     *      The code of the course.
+     *
+     * @param prerequisiteDepartment
+     *      The department of the prerequisite.
+     *
+     * @param prerequisiteCode
+     *      The code of the prerequisite.
+     *
+     * @return
+     *      True if the prerequisite is new, false if it was already recorded.
+     *
+     * @throws IllegalArgumentException
+     *      when the prerequisite would make the course, directly or not, a prerequisite of itself.
+     */
+    public boolean addPrerequisite(String department, int code, String prerequisiteDepartment, int prerequisiteCode)
+            throws IllegalArgumentException {
+        int from = node(prerequisiteDepartment, prerequisiteCode), to = node(department, code);
+        if(from == to)
+            throw new IllegalArgumentException("Error: " + names[to] + " can't be a prerequisite of itself.");
+        if(contains(successors[from], successorCounts[from], to))
+            return false;
+
+        if(order[from] > order[to])
+            reorder(from, to);
+
+        successors[from] = append(successors[from], successorCounts[from]++, to);
+        predecessors[to] = append(predecessors[to], predecessorCounts[to]++, from);
+        edges++;
+        return true;
+    }
+
+    /**
+     * Removes a prerequisite of a course. The order of the courses stays valid.
+     *
+     * @param department
+     *      The department of the course.
+     *
+     * @param code
+     *      The code of the course.
+     *
+     * @param prerequisiteDepartment
+     *      The department of the prerequisite.
+     *
+     * @param prerequisiteCode
+     *      The code of the prerequisite.
+     *
+     * @return
+     *      True if the prerequisite was removed, false if it was not recorded.
+     */
+    public boolean removePrerequisite(String department, int code, String prerequisiteDepartment, int prerequisiteCode) {
+        Integer from = ids.get(key(prerequisiteDepartment, prerequisiteCode)), to = ids.get(key(department, code));
+        if(from == null || to == null || !remove(successors[from], successorCounts[from], to))
+            return false;
+
+        successorCounts[from]--;
+        remove(predecessors[to], predecessorCounts[to]--, from);
+        edges--;
+        return true;
+    }
+
+    /**
+     * Returns the direct prerequisites of a course.
+     *
+     * @param department
+     *      The department of the course.
+     *
+     * @param code
+     *      The code of the course.
+     *
+     * @return
+     *      The prerequisites written as department and code, such as "CSE 114", in the order
+     *      they were added.
+     */
+    public List<String> prerequisites(String department, int code) {
+        ArrayList<String> prerequisites = new ArrayList<>();
+        Integer node = ids.get(key(department, code));
+        if(node != null)
+            for(int i = 0; i < predecessorCounts[node]; i++)
+                prerequisites.add(names[predecessors[node][i]]);
+        return prerequisites;
+    }
+
+    /**
+     * Returns the number of courses in the graph.
+     *
+     * @return
+     *      The number of courses that have or are prerequisites.
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of prerequisites in the graph.
+     *
+     * @return
+     *      The number of recorded prerequisites.
+     */
+    public int prerequisiteCount() {
+        return edges;
+    }
+
+    /**
+     * Returns every course of the graph in an order where each prerequisite comes before the
+     * courses that require it.
+     *
+     * @return
+     *      The courses written as department and code.
+     */
+    public List<String> topologicalOrder() {
+        ArrayList<String> sorted = new ArrayList<>(nodes);
+        for(int i = 0; i < nodes; i++)
+            sorted.add(names[nodeAt[i]]);
+        return sorted;
+    }
+
+    /**
+     * Orders Courses so that each prerequisite comes before the Courses that require it,
+     * counting prerequisites of prerequisites. Courses that are not in the graph come first,
+     * and sections of the same course keep their relative order.
+     *
+     * @param courses
+     *      The Courses to order.
+     *
+     * @return
+     *      A new list of the Courses in topological order.
+     */
+    public List<Course> order(Collection<Course> courses) {
+        ArrayList<Course> sorted = new ArrayList<>(courses);
+        sorted.sort(Comparator.comparingInt(this::rank));
+        return sorted;
+    }
+
+    /**
+     * Checks that every course of a Planner comes after its prerequisites in the Planner.
+     * Prerequisites missing from the Planner are not reported. The check takes linear time
+     * in the number of Courses in the Planner and the prerequisites of their courses.
+     *
+     * @param planner
+     *      The Planner to check.
+     *
+     * @return
+     *      Every violation as an array of the prerequisite and the Course placed before it,
+     *      both as the first section of their course in the Planner, in order of position of
+     *      the Course. Empty if the ordering is valid.
+     */
+    public List<Course[]> validate(Planner planner) {
+        ArrayList<Course[]> violations = new ArrayList<>();
+        if(edges == 0)
+            return violations;
+
+        HashMap<Integer, Integer> first = new HashMap<>();
+        for(int position = 1; position <= planner.size(); position++) {
+            Course course = planner.getCourse(position);
+            Integer node = ids.get(key(course.getDepartment(), course.getCode()));
+            if(node != null)
+                first.putIfAbsent(node, position);
+        }
+
+        for(int position = 1; position <= planner.size(); position++) {
+            Course course = planner.getCourse(position);
+            Integer node = ids.get(key(course.getDepartment(), course.getCode()));
+            if(node == null || first.get(node) != position)
+                continue;
+
+            for(int i = 0; i < predecessorCounts[node]; i++) {
+                Integer prerequisite = first.get(predecessors[node][i]);
+                if(prerequisite != null && prerequisite > position)
+                    violations.add(new Course[]{planner.getCourse(prerequisite), course});
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Restores the order after adding the prerequisite from -> to when to comes before from.
+     * The courses reachable from to that come no later than from, and the courses leading to
+     * from that come no earlier than to, are moved so that the first group follows the second,
+     * reusing the same positions of the order.
+     */
+    private void reorder(int from, int to) throws IllegalArgumentException {
+        int lower = order[to], upper = order[from];
+
+        epoch++;
+        int[] forward = search(to, from, upper, true);
+        int[] backward = search(from, -1, lower, false);
+
+        Integer[] moved = new Integer[forward.length + backward.length];
+        int count = 0;
+        for(int node : backward)
+            moved[count++] = node;
+        for(int node : forward)
+            moved[count++] = node;
+
+        int[] slots = new int[moved.length];
+        for(int i = 0; i < moved.length; i++)
+            slots[i] = order[moved[i]];
+        Arrays.sort(slots);
+        Arrays.sort(moved, 0, backward.length, Comparator.comparingInt(node -> order[node]));
+        Arrays.sort(moved, backward.length, moved.length, Comparator.comparingInt(node -> order[node]));
+
+        for(int i = 0; i < moved.length; i++) {
+            order[moved[i]] = slots[i];
+            nodeAt[slots[i]] = moved[i];
+        }
+    }
+
+    /**
+     * Searches the courses reachable from start, following prerequisites forward or backward,
+     * that lie within the affected range of the order. Reaching target on the forward search
+     * means the new prerequisite would close a cycle.
+     */
+    private int[] search(int start, int target, int bound, boolean forward) throws IllegalArgumentException {
+        int[] found = new int[8];
+        int count = 0;
+        int[] stack = new int[8];
+        int top = 0;
+        stack[top++] = start;
+        visited[start] = epoch;
+        parent[start] = -1;
+
+        while(top > 0) {
+            int node = stack[--top];
+            found = append(found, count++, node);
+
+            int[] next = forward ? successors[node] : predecessors[node];
+            int degree = forward ? successorCounts[node] : predecessorCounts[node];
+            for(int i = 0; i < degree; i++) {
+                int neighbour = next[i];
+                if(neighbour == target)
+                    throw new IllegalArgumentException("Error: " + cycle(node, target) + " would form a cycle.");
+                if(visited[neighbour] == epoch || (forward ? order[neighbour] > bound : order[neighbour] < bound))
+                    continue;
+
+                visited[neighbour] = epoch;
+                parent[neighbour] = node;
+                stack = append(stack, top++, neighbour);
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Describes the cycle closed by the prerequisite target -> start of the forward search,
+     * where node was reached from start.
+     */
+    private String cycle(int node, int target) {
+        StringBuilder path = new StringBuilder(names[target]);
+        ArrayList<String> reversed = new ArrayList<>();
+        for(int n = node; n != -1; n = parent[n])
+            reversed.add(names[n]);
+        for(int i = reversed.size() - 1; i >= 0; i--)
+            path.append(" -> ").append(reversed.get(i));
+        return path.append(" -> ").append(names[target]).toString();
+    }
+
+    /**
+     * Returns the position in the order of the course of a Course, -1 if it is not in the graph.
+     */
+    private int rank(Course course) {
+        Integer node = ids.get(key(course.getDepartment(), course.getCode()));
+        return node == null ? -1 : order[node];
+    }
+
+    /**
+     * Returns the node of a course, adding it at the end of the order if it is new.
+     */
+    private int node(String department, int code) {
+        String key = key(department, code);
+        Integer node = ids.get(key);
+        if(node != null)
+            return node;
+
+        if(nodes == names.length) {
+            int capacity = nodes << 1;
+            names = Arrays.copyOf(names, capacity);
+            successors = Arrays.copyOf(successors, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            successorCounts = Arrays.copyOf(successorCounts, capacity);
+            predecessorCounts = Arrays.copyOf(predecessorCounts, capacity);
+            order = Arrays.copyOf(order, capacity);
+            nodeAt = Arrays.copyOf(nodeAt, capacity);
+            visited = Arrays.copyOf(visited, capacity);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+
+        names[nodes] = key;
+        successors[nodes] = new int[2];
+        predecessors[nodes] = new int[2];
+        order[nodes] = nodes;
+        nodeAt[nodes] = nodes;
+        ids.put(key, nodes);
+        return nodes++;
+    }
+
+    private static String key(String department, int code) {
+        return department + " " + code;
+    }
+
+    /**
+     * Stores value at index of the array, growing the array if it is full.
+     */
+    private static int[] append(int[] array, int index, int value) {
+        if(index == array.length)
+            array = Arrays.copyOf(array, array.length << 1);
+        array[index] = value;
+        return array;
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for(int i = 0; i < length; i++)
+            if(array[i] == value)
+                return true;
+        return false;
+    }
+
+    /**
+     * Removes value from the first length slots of the array by moving the last slot into its place.
+     */
+    private static boolean remove(int[] array, int length, int value) {
+        for(int i = 0; i < length; i++) {
+            if(array[i] == value) {
+                array[i] = array[length - 1];
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,275 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The RangeIndex class keeps the entries of an ordered list such as a Planner or a Catalog
+ * sorted by department, code and section, so that every Course of a department within a
+ * range of codes, such as all CSE courses from 300 to 399, is found with a binary search
+ * followed by a scan of the matches only.
+ * <p>
+ * Each entry is a key packing the department's number in a dictionary of the index, the
+ * code and the section into one long, held in a sorted primitive array beside the 0-based
+ * position of the entry in the list. Entries with the same key are ordered by position. Like
+ * PositionIndex, the index is kept in sync by reporting every insertion and removal, and
+ * the positions of the following entries are shifted to match the list.
+ *
+ * @author Zhen Wei Liao
+ */
+class RangeIndex {
+    private static final int CODE_SHIFT = 8, DEPARTMENT_SHIFT = 40;
+    private static final int MAX_DEPARTMENTS = 1 << (63 - DEPARTMENT_SHIFT);
+
+    private final HashMap<String, Integer> departments = new HashMap<>();
+    private long[] keys;
+    private int[] positions;
+    private int size;
+
+    /**
+     * Constructor creates an empty RangeIndex.
+     */
+    RangeIndex() {
+        keys = new long[8];
+        positions = new int[8];
+    }
+
+    /**
+     * Creates a RangeIndex of the given Courses, sorting them once instead of inserting
+     * them one at a time.
+     *
+     * @param courses
+     *      The Courses of the list, the Course at index i being at position i.
+     *
+     * @param count
+     *      The number of Courses in the list.
+     *
+     * @return
+     *      A RangeIndex of the first count Courses.
+     */
+    static RangeIndex of(Course[] courses, int count) {
+        RangeIndex index = new RangeIndex();
+        long[] unsorted = new long[count];
+        int[] order = new int[count];
+        for(int i = 0; i < count; i++) {
+            unsorted[i] = index.key(courses[i]);
+            order[i] = i;
+        }
+        sort(order, unsorted);
+
+        index.keys = new long[Math.max(count, 8)];
+        index.positions = new int[Math.max(count, 8)];
+        for(int i = 0; i < count; i++) {
+            index.keys[i] = unsorted[order[i]];
+            index.positions[i] = order[i];
+        }
+        index.size = count;
+        return index;
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return
+     *      The number of Courses indexed.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Records that a Course has been inserted at the given position.
+     *
+     * @param course
+     *      The inserted Course.
+     *
+     * @param position
+     *      The 0-based position of the inserted Course.
+     *
+     * @param shiftFollowing
+     *      True if entries at or after the position moved one slot back, false if the
+     *      Course was appended to the end of the list.
+     */
+    void insert(Course course, int position, boolean shiftFollowing) {
+        if(shiftFollowing)
+            shift(position, 1);
+
+        long key = key(course);
+        int slot = search(key, position);
+        if(size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            positions = Arrays.copyOf(positions, size << 1);
+        }
+
+        System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+        System.arraycopy(positions, slot, positions, slot + 1, size - slot);
+        keys[slot] = key;
+        positions[slot] = position;
+        size++;
+    }
+
+    /**
+     * Records that a Course has been removed from the given position.
+     *
+     * @param course
+     *      The removed Course.
+     *
+     * @param position
+     *      The 0-based position the Course was removed from.
+     *
+     * @param shiftFollowing
+     *      True if entries after the position moved one slot forward, false if the
+     *      Course was the last one in the list.
+     */
+    void remove(Course course, int position, boolean shiftFollowing) {
+        long key = key(course);
+        int slot = search(key, position);
+        if(slot < size && keys[slot] == key && positions[slot] == position) {
+            System.arraycopy(keys, slot + 1, keys, slot, size - slot - 1);
+            System.arraycopy(positions, slot + 1, positions, slot, size - slot - 1);
+            size--;
+        }
+
+        if(shiftFollowing)
+            shift(position + 1, -1);
+    }
+
+    /**
+     * Returns the positions of the Courses of a department whose code is within a range.
+     *
+     * @param department
+     *      The department of the Courses, null for the Courses without one.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      A new array of 0-based positions, ordered by code, then section, then position.
+     *      Empty if no Course matches or minCode is greater than maxCode.
+     */
+    int[] range(String department, int minCode, int maxCode) {
+        int from = from(department, minCode, maxCode);
+        if(from < 0)
+            return new int[0];
+        return Arrays.copyOfRange(positions, from, to(department, maxCode));
+    }
+
+    /**
+     * Counts the Courses of a department whose code is within a range without listing them.
+     *
+     * @param department
+     *      The department of the Courses, null for the Courses without one.
+     *
+     * @param minCode
+     *      The smallest code of the range.
+     *
+     * @param maxCode
+     *      The largest code of the range.
+     *
+     * @return
+     *      The number of matching Courses.
+     */
+    int count(String department, int minCode, int maxCode) {
+        int from = from(department, minCode, maxCode);
+        return from < 0 ? 0 : to(department, maxCode) - from;
+    }
+
+    /**
+     * Returns the slot of the first entry of the range, -1 if the range is empty.
+     */
+    private int from(String department, int minCode, int maxCode) {
+        if(minCode > maxCode)
+            return -1;
+        int id = id(department);
+        if(id < 0)
+            return -1;
+        return search(key(id, minCode, Byte.MIN_VALUE), Integer.MIN_VALUE);
+    }
+
+    /**
+     * Returns the slot following the last entry of the department whose code is at most maxCode.
+     */
+    private int to(String department, int maxCode) {
+        return search(key(id(department), maxCode, Byte.MAX_VALUE), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds delta to every recorded position that is greater than or equal to from.
+     */
+    private void shift(int from, int delta) {
+        for(int i = 0; i < size; i++)
+            if(positions[i] >= from)
+                positions[i] += delta;
+    }
+
+    /**
+     * Returns the slot of the first entry that is not less than the given key and position.
+     */
+    private int search(long key, int position) {
+        int low = 0, high = size;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(keys[mid] < key || (keys[mid] == key && positions[mid] < position))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns the key of a Course, numbering its department if it is new to the index.
+     */
+    private long key(Course course) {
+        String department = course.getDepartment();
+        Integer id = department == null ? Integer.valueOf(0) : departments.get(department);
+        if(id == null) {
+            if(departments.size() + 1 >= MAX_DEPARTMENTS)
+                throw new IllegalStateException("Error: Too many departments to index.");
+            id = departments.size() + 1;
+            departments.put(department, id);
+        }
+        return key(id, course.getCode(), course.getSection());
+    }
+
+    /**
+     * Returns the number of a department, 0 for null and -1 for a department never indexed.
+     */
+    private int id(String department) {
+        Integer id = department == null ? Integer.valueOf(0) : departments.get(department);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Packs a department number, a code and a section into a key that sorts in the same order.
+     * Codes and sections are offset so that negative ones sort before positive ones.
+     */
+    private static long key(int department, int code, int section) {
+        return ((long) department << DEPARTMENT_SHIFT)
+                | (((code ^ Integer.MIN_VALUE) & 0xFFFFFFFFL) << CODE_SHIFT)
+                | (section - Byte.MIN_VALUE);
+    }
+
+    /**
+     * Sorts the indices in order by key, keeping indices with the same key in ascending order.
+     */
+    private static void sort(int[] order, long[] keys) {
+        int[] buffer = new int[order.length];
+        for(int width = 1; width < order.length; width <<= 1) {
+            for(int low = 0; low < order.length - width; low += width << 1) {
+                int mid = low + width, high = Math.min(low + (width << 1), order.length);
+                if(keys[order[mid - 1]] <= keys[order[mid]])
+                    continue;
+                int i = low, j = mid, k = low;
+                while(i < mid && j < high)
+                    buffer[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+                while(i < mid)
+                    buffer[k++] = order[i++];
+                while(j < high)
+                    buffer[k++] = order[j++];
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+    }
+}
@@ -0,0 +1,395 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The ScheduleGenerator class finds the conflict-free schedules that can be made from the
+ * Courses in a Planner. Courses with the same department and code are sections of the same
+ * course, and a schedule takes exactly one section of every course so that no two of them meet
+ * at the same time. Schedules are ranked by the preference numbers of their sections: the lower
+ * the sum of their positions in the Planner, the better the schedule.
+ * <p>
+ * The search backtracks over the courses with the fewest sections first, keeping the minutes of
+ * the week already taken as a bit set so that each section is checked by a few bitwise ANDs. The
+ * first levels of the search are split across a fork-join pool, and a branch is cut as soon as
+ * even its best completion cannot rank among the schedules already found.
+ *
+ * @author Zhen Wei Liao
+ */
+public class ScheduleGenerator {
+    private static final int MINUTES_PER_WEEK = MeetingTime.DAYS * MeetingTime.MINUTES_PER_DAY;
+    private static final int WORDS = (MINUTES_PER_WEEK + 63) / 64;
+    private static final int TASKS_PER_THREAD = 8;
+
+    /**
+     * A conflict-free schedule, holding one section of each course.
+     */
+    public static final class Schedule {
+        private final int[] positions;
+        private final Course[] courses;
+        private final int score;
+
+        Schedule(int[] positions, Course[] courses, int score) {
+            this.positions = positions;
+            this.courses = courses;
+            this.score = score;
+        }
+
+        /**
+         * Returns the positions of the sections in the Planner.
+         *
+         * @return
+         *      The positions of the chosen sections in ascending order.
+         */
+        public int[] getPositions() {
+            return positions.clone();
+        }
+
+        /**
+         * Returns the sections of the schedule.
+         *
+         * @return
+         *      The chosen sections in order of their positions in the Planner.
+         */
+        public Course[] getCourses() {
+            return courses.clone();
+        }
+
+        /**
+         * Returns the preference score of the schedule.
+         *
+         * @return
+         *      The sum of the positions of the sections; lower is better.
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+
+    private final Planner planner;
+    private final int[][] sections;
+    private final int[][] maskWords;
+    private final long[][] maskBits;
+    private final int[] remaining;
+    private final ForkJoinPool pool;
+    private final int forkDepth;
+
+    /**
+     * Constructor prepares the search over the sections of a Planner, using the common
+     * fork-join pool.
+     *
+     * @param planner
+     *      The Planner holding the candidate sections. Later changes to the Planner do not
+     *      affect the generator.
+     */
+    public ScheduleGenerator(Planner planner) {
+        this(planner, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor prepares the search over the sections of a Planner.
+     *
+     * @param planner
+     *      The Planner holding the candidate sections. Later changes to the Planner do not
+     *      affect the generator.
+     *
+     * @param pool
+     *      The fork-join pool running the search.
+     */
+    public ScheduleGenerator(Planner planner, ForkJoinPool pool) {
+        this.planner = planner.makeCopy();
+        this.pool = pool;
+
+        LinkedHashMap<String, List<Integer>> courses = new LinkedHashMap<>();
+        for(int position = 1; position <= this.planner.size(); position++) {
+            Course course = this.planner.getCourse(position);
+            courses.computeIfAbsent(course.getDepartment() + " " + course.getCode(), k -> new ArrayList<>()).add(position);
+        }
+
+        List<List<Integer>> groups = new ArrayList<>(courses.values());
+        groups.sort(Comparator.comparingInt(List::size));
+        sections = new int[groups.size()][];
+        for(int g = 0; g < sections.length; g++)
+            sections[g] = groups.get(g).stream().mapToInt(Integer::intValue).toArray();
+
+        maskWords = new int[this.planner.size() + 1][];
+        maskBits = new long[this.planner.size() + 1][];
+        for(int position = 1; position <= this.planner.size(); position++)
+            buildMask(position, this.planner.getCourse(position).meetings());
+
+        remaining = new int[sections.length + 1];
+        for(int g = sections.length - 1; g >= 0; g--)
+            remaining[g] = remaining[g + 1] + sections[g][0];
+
+        int depth = 0;
+        long branches = 1;
+        while(depth < sections.length && branches < (long) pool.getParallelism() * TASKS_PER_THREAD)
+            branches *= sections[depth++].length;
+        forkDepth = depth;
+    }
+
+    /**
+     * Returns the number of distinct courses, each of which a schedule takes one section of.
+     *
+     * @return
+     *      The number of courses in the Planner.
+     */
+    public int courses() {
+        return sections.length;
+    }
+
+    /**
+     * Returns the best conflict-free schedules.
+     *
+     * @param limit
+     *      The maximum number of schedules to return.
+     *
+     * @return
+     *      Up to limit schedules from best to worst, empty if the Planner is empty or no
+     *      schedule is conflict-free. Schedules with the same score are ordered by their
+     *      positions.
+     *
+     * @throws IllegalArgumentException
+     *      when limit is not positive.
+     */
+    public List<Schedule> top(int limit) throws IllegalArgumentException {
+        if(limit <= 0)
+            throw new IllegalArgumentException("Invalid: Number of schedules must be positive.");
+        if(sections.length == 0)
+            return new ArrayList<>();
+
+        Ranking ranking = new Ranking(limit);
+        pool.invoke(new Search(0, new long[WORDS], new int[sections.length], 0, ranking));
+        return ranking.schedules();
+    }
+
+    /**
+     * Counts every conflict-free schedule.
+     *
+     * @return
+     *      The number of conflict-free schedules, 0 if the Planner is empty.
+     */
+    public long count() {
+        if(sections.length == 0)
+            return 0;
+        return pool.invoke(new Count(0, new long[WORDS]));
+    }
+
+    /**
+     * Records the minutes of the week taken by a section as the words of the week mask that
+     * are not empty.
+     */
+    private void buildMask(int position, MeetingTime[] meetings) {
+        long[] mask = new long[WORDS];
+        for(MeetingTime meeting : meetings) {
+            int from = meeting.getDay() * MeetingTime.MINUTES_PER_DAY + meeting.getStart();
+            int to = meeting.getDay() * MeetingTime.MINUTES_PER_DAY + meeting.getEnd();
+            for(int minute = from; minute < to; ) {
+                int word = minute >>> 6, bit = minute & 63, count = Math.min(64 - bit, to - minute);
+                mask[word] |= (count == 64 ? -1L : ((1L << count) - 1)) << bit;
+                minute += count;
+            }
+        }
+
+        int used = 0;
+        for(long bits : mask)
+            if(bits != 0)
+                used++;
+        maskWords[position] = new int[used];
+        maskBits[position] = new long[used];
+        for(int word = 0, i = 0; word < WORDS; word++) {
+            if(mask[word] != 0) {
+                maskWords[position][i] = word;
+                maskBits[position][i++] = mask[word];
+            }
+        }
+    }
+
+    /**
+     * Checks if a section fits in the minutes of the week not yet taken.
+     */
+    private boolean fits(long[] taken, int position) {
+        int[] words = maskWords[position];
+        long[] bits = maskBits[position];
+        for(int i = 0; i < words.length; i++)
+            if((taken[words[i]] & bits[i]) != 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Takes or releases the minutes of a section, which must fit when taken.
+     */
+    private void toggle(long[] taken, int position) {
+        int[] words = maskWords[position];
+        long[] bits = maskBits[position];
+        for(int i = 0; i < words.length; i++)
+            taken[words[i]] ^= bits[i];
+    }
+
+    /**
+     * The best schedules found so far, shared by every task of a search. The score a new
+     * schedule must not exceed is kept in a volatile field so that tasks can cut branches
+     * without locking.
+     */
+    private final class Ranking {
+        private final int limit;
+        private final PriorityQueue<Schedule> worstFirst = new PriorityQueue<>(ORDER.reversed());
+        private volatile int bound = Integer.MAX_VALUE;
+
+        Ranking(int limit) {
+            this.limit = limit;
+        }
+
+        synchronized void offer(int[] chosen, int score) {
+            if(worstFirst.size() == limit && score > bound)
+                return;
+
+            int[] positions = chosen.clone();
+            Arrays.sort(positions);
+            Course[] courses = new Course[positions.length];
+            for(int i = 0; i < positions.length; i++)
+                courses[i] = planner.getCourse(positions[i]);
+
+            worstFirst.add(new Schedule(positions, courses, score));
+            if(worstFirst.size() > limit)
+                worstFirst.poll();
+            if(worstFirst.size() == limit)
+                bound = worstFirst.peek().score;
+        }
+
+        synchronized List<Schedule> schedules() {
+            ArrayList<Schedule> schedules = new ArrayList<>(worstFirst);
+            schedules.sort(ORDER);
+            return schedules;
+        }
+    }
+
+    private static final Comparator<Schedule> ORDER = (a, b) -> {
+        if(a.score != b.score)
+            return Integer.compare(a.score, b.score);
+        return Arrays.compare(a.positions, b.positions);
+    };
+
+    /**
+     * Searches the schedules that complete the sections chosen for the first courses.
+     */
+    private final class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int course;
+        private final long[] taken;
+        private final int[] chosen;
+        private final int score;
+        private final Ranking ranking;
+
+        Search(int course, long[] taken, int[] chosen, int score, Ranking ranking) {
+            this.course = course;
+            this.taken = taken;
+            this.chosen = chosen;
+            this.score = score;
+            this.ranking = ranking;
+        }
+
+        @Override
+        protected void compute() {
+            if(course >= forkDepth) {
+                search(course, score);
+                return;
+            }
+
+            ArrayList<Search> tasks = new ArrayList<>();
+            for(int position : sections[course]) {
+                if(score + position + remaining[course + 1] > ranking.bound)
+                    break;
+                if(!fits(taken, position))
+                    continue;
+
+                long[] nextTaken = taken.clone();
+                toggle(nextTaken, position);
+                int[] nextChosen = chosen.clone();
+                nextChosen[course] = position;
+                tasks.add(new Search(course + 1, nextTaken, nextChosen, score + position, ranking));
+            }
+            invokeAll(tasks);
+        }
+
+        /**
+         * Backtracks from a course on, reusing the arrays of this task.
+         */
+        private void search(int course, int score) {
+            if(course == sections.length) {
+                ranking.offer(chosen, score);
+                return;
+            }
+
+            for(int position : sections[course]) {
+                if(score + position + remaining[course + 1] > ranking.bound)
+                    break;
+                if(!fits(taken, position))
+                    continue;
+
+                toggle(taken, position);
+                chosen[course] = position;
+                search(course + 1, score + position);
+                toggle(taken, position);
+            }
+        }
+    }
+
+    /**
+     * Counts the schedules that complete the minutes already taken.
+     */
+    private final class Count extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int course;
+        private final long[] taken;
+
+        Count(int course, long[] taken) {
+            this.course = course;
+            this.taken = taken;
+        }
+
+        @Override
+        protected Long compute() {
+            if(course >= forkDepth)
+                return count(course);
+
+            ArrayList<Count> tasks = new ArrayList<>();
+            for(int position : sections[course]) {
+                if(!fits(taken, position))
+                    continue;
+                long[] nextTaken = taken.clone();
+                toggle(nextTaken, position);
+                tasks.add(new Count(course + 1, nextTaken));
+            }
+
+            long total = 0;
+            for(Count task : invokeAll(tasks))
+                total += task.join();
+            return total;
+        }
+
+        private long count(int course) {
+            if(course == sections.length)
+                return 1;
+
+            long total = 0;
+            for(int position : sections[course]) {
+                if(!fits(taken, position))
+                    continue;
+                toggle(taken, position);
+                total += count(course + 1);
+                toggle(taken, position);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * The SearchIndex class answers text queries over the names and instructors of a set of
+ * Courses. It supports three kinds of queries, each returning the best k matches:
+ * <ul>
+ *   <li>prefix: every word of the query starts a word of the Course,</li>
+ *   <li>substring: the query appears anywhere in the Course name or instructor,</li>
+ *   <li>fuzzy: every word of the query is within a small edit distance of a word of the Course.</li>
+ * </ul>
+ * Words are kept in a sorted dictionary for prefix queries, and trigrams of the words and of
+ * the full text are indexed for substring and fuzzy queries. The index is updated incrementally
+ * as Courses are added and removed. Matching ignores case.
+ *
+ * @author Zhen Wei Liao
+ */
+public class SearchIndex {
+    private final ArrayList<Course> documents = new ArrayList<>();
+    private final ArrayList<String> texts = new ArrayList<>();
+    private final HashMap<Course, Integer> ids = new HashMap<>();
+    private final TreeMap<String, IntList> terms = new TreeMap<>();
+    private final HashMap<Long, ArrayList<String>> termGrams = new HashMap<>();
+    private final HashMap<Long, IntList> textGrams = new HashMap<>();
+    private int size;
+
+    /**
+     * Sorted list of document ids. Ids are assigned in increasing order, so adding a
+     * document only appends.
+     */
+    private static final class IntList {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int id) {
+            if(size == items.length)
+                items = Arrays.copyOf(items, size << 1);
+            items[size++] = id;
+        }
+
+        void remove(int id) {
+            int slot = Arrays.binarySearch(items, 0, size, id);
+            if(slot >= 0) {
+                System.arraycopy(items, slot + 1, items, slot, size - slot - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Constructor creates an empty SearchIndex.
+     */
+    public SearchIndex() {
+    }
+
+    /**
+     * Adds a Course to the index. A Course equal to one already indexed is ignored.
+     *
+     * @param course
+     *      The Course being added.
+     */
+    public void add(Course course) {
+        if(ids.containsKey(course))
+            return;
+
+        int id = documents.size();
+        String text = text(course);
+        documents.add(course);
+        texts.add(text);
+        ids.put(course, id);
+        size++;
+
+        for(String term : words(course)) {
+            IntList postings = terms.get(term);
+            if(postings == null) {
+                postings = new IntList();
+                terms.put(term, postings);
+                for(long gram : trigrams("$" + term + "$"))
+                    termGrams.computeIfAbsent(gram, g -> new ArrayList<>()).add(term);
+            }
+            postings.add(id);
+        }
+
+        for(long gram : trigrams(text))
+            textGrams.computeIfAbsent(gram, g -> new IntList()).add(id);
+    }
+
+    /**
+     * Removes a Course from the index.
+     *
+     * @param course
+     *      The Course being removed.
+     *
+     * @return
+     *      True if the Course was indexed, false otherwise.
+     */
+    public boolean remove(Course course) {
+        Integer id = ids.remove(course);
+        if(id == null)
+            return false;
+
+        String text = texts.set(id, null);
+        documents.set(id, null);
+        size--;
+
+        for(String term : words(course)) {
+            IntList postings = terms.get(term);
+            postings.remove(id);
+            if(postings.size == 0) {
+                terms.remove(term);
+                for(long gram : trigrams("$" + term + "$")) {
+                    ArrayList<String> grams = termGrams.get(gram);
+                    grams.remove(term);
+                    if(grams.isEmpty())
+                        termGrams.remove(gram);
+                }
+            }
+        }
+
+        for(long gram : trigrams(text)) {
+            IntList postings = textGrams.get(gram);
+            postings.remove(id);
+            if(postings.size == 0)
+                textGrams.remove(gram);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of Courses in the index.
+     *
+     * @return
+     *      The number of indexed Courses.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the Courses having a word that starts with each word of the query. Courses whose
+     * words match the query words exactly rank first.
+     *
+     * @param query
+     *      The words to look for.
+     *
+     * @param k
+     *      The maximum number of results, none if k is not positive.
+     *
+     * @return
+     *      The best matching Courses, best first.
+     */
+    public List<Course> prefix(String query, int k) {
+        String[] words = split(query);
+        ArrayList<ArrayList<Match>> groups = new ArrayList<>();
+        for(String word : words) {
+            ArrayList<Match> group = new ArrayList<>();
+            for(Map.Entry<String, IntList> entry : terms.subMap(word, word + Character.MAX_VALUE).entrySet())
+                group.add(new Match(entry.getValue(), (double) word.length() / entry.getKey().length()));
+            groups.add(group);
+        }
+
+        Candidates candidates = evaluate(groups);
+        return top(candidates, k);
+    }
+
+    /**
+     * Finds the Courses whose name or instructor contains the query. Earlier occurrences rank first.
+     *
+     * @param query
+     *      The text to look for.
+     *
+     * @param k
+     *      The maximum number of results, none if k is not positive.
+     *
+     * @return
+     *      The best matching Courses, best first.
+     */
+    public List<Course> substring(String query, int k) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        if(needle.isEmpty())
+            return new ArrayList<>();
+
+        Candidates candidates;
+        long[] grams = trigrams(needle);
+        if(grams.length == 0) {
+            candidates = new Candidates(documents.size());
+            for(int id = 0; id < documents.size(); id++)
+                candidates.add(id, 0);
+        } else {
+            ArrayList<ArrayList<Match>> groups = new ArrayList<>();
+            for(long gram : grams) {
+                IntList postings = textGrams.get(gram);
+                if(postings == null)
+                    return new ArrayList<>();
+                ArrayList<Match> group = new ArrayList<>();
+                group.add(new Match(postings, 0));
+                groups.add(group);
+            }
+            candidates = evaluate(groups);
+        }
+
+        int kept = 0;
+        for(int i = 0; i < candidates.size; i++) {
+            String text = texts.get(candidates.ids[i]);
+            int at = text == null ? -1 : text.indexOf(needle);
+            if(at >= 0) {
+                candidates.ids[kept] = candidates.ids[i];
+                candidates.scores[kept++] = 1.0 / (1 + at);
+            }
+        }
+        candidates.size = kept;
+        return top(candidates, k);
+    }
+
+    /**
+     * Finds the Courses having a word within a small edit distance of each word of the query:
+     * one edit for words of up to four letters and two edits for longer words. Closer matches
+     * rank first.
+     *
+     * @param query
+     *      The words to look for.
+     *
+     * @param k
+     *      The maximum number of results, none if k is not positive.
+     *
+     * @return
+     *      The best matching Courses, best first.
+     */
+    public List<Course> fuzzy(String query, int k) {
+        String[] words = split(query);
+        ArrayList<ArrayList<Match>> groups = new ArrayList<>();
+        for(String word : words) {
+            int maxDistance = word.length() <= 4 ? 1 : 2;
+            HashMap<String, Integer> shared = new HashMap<>();
+            for(long gram : trigrams("$" + word + "$")) {
+                ArrayList<String> candidates = termGrams.get(gram);
+                if(candidates != null)
+                    for(String term : candidates)
+                        shared.merge(term, 1, Integer::sum);
+            }
+
+            ArrayList<Match> group = new ArrayList<>();
+            for(String term : shared.keySet()) {
+                int distance = distance(word, term, maxDistance);
+                if(distance <= maxDistance)
+                    group.add(new Match(terms.get(term),
+                            1.0 - (double) distance / (Math.max(word.length(), term.length()) + 1)));
+            }
+            groups.add(group);
+        }
+
+        return top(evaluate(groups), k);
+    }
+
+    /**
+     * Finds Courses by prefix first and fills the remaining results with fuzzy matches.
+     *
+     * @param query
+     *      The words to look for.
+     *
+     * @param k
+     *      The maximum number of results, none if k is not positive.
+     *
+     * @return
+     *      The best matching Courses, best first.
+     */
+    public List<Course> search(String query, int k) {
+        List<Course> results = prefix(query, k);
+        if(results.size() < k)
+            for(Course course : fuzzy(query, k))
+                if(results.size() < k && !results.contains(course))
+                    results.add(course);
+        return results;
+    }
+
+    /**
+     * Postings of a term matching a query word, with the score the match is worth.
+     */
+    private static final class Match {
+        private final IntList postings;
+        private final double score;
+
+        Match(IntList postings, double score) {
+            this.postings = postings;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Documents matching a query so far, sorted by id, with their scores.
+     */
+    private static final class Candidates {
+        private int[] ids;
+        private double[] scores;
+        private int size;
+
+        Candidates(int capacity) {
+            ids = new int[Math.max(capacity, 1)];
+            scores = new double[ids.length];
+        }
+
+        void add(int id, double score) {
+            ids[size] = id;
+            scores[size++] = score;
+        }
+    }
+
+    /**
+     * Returns the documents that match at least one term of every group. A document scores
+     * the sum over the groups of its best matching term. The most selective group is evaluated
+     * first, and the remaining groups only probe the candidates that are left.
+     */
+    private static Candidates evaluate(ArrayList<ArrayList<Match>> groups) {
+        if(groups.isEmpty())
+            return new Candidates(0);
+
+        long[] costs = new long[groups.size()];
+        Integer[] order = new Integer[groups.size()];
+        for(int g = 0; g < groups.size(); g++) {
+            order[g] = g;
+            for(Match match : groups.get(g))
+                costs[g] += match.postings.size;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(costs[a], costs[b]));
+
+        Candidates candidates = union(groups.get(order[0]), costs[order[0]]);
+        for(int g = 1; g < order.length && candidates.size > 0; g++) {
+            ArrayList<Match> group = groups.get(order[g]);
+            int kept = 0;
+            for(int i = 0; i < candidates.size; i++) {
+                int id = candidates.ids[i];
+                double best = -1;
+                for(Match match : group)
+                    if(match.score > best && Arrays.binarySearch(match.postings.items, 0, match.postings.size, id) >= 0)
+                        best = match.score;
+                if(best >= 0) {
+                    candidates.ids[kept] = id;
+                    candidates.scores[kept++] = candidates.scores[i] + best;
+                }
+            }
+            candidates.size = kept;
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the documents matching any term of a group with their best score, sorted by id.
+     */
+    private static Candidates union(ArrayList<Match> group, long cost) {
+        if(group.size() == 1) {
+            Match match = group.get(0);
+            Candidates candidates = new Candidates(match.postings.size);
+            for(int i = 0; i < match.postings.size; i++)
+                candidates.add(match.postings.items[i], match.score);
+            return candidates;
+        }
+
+        long[] pairs = new long[(int) cost];
+        int n = 0;
+        for(int m = 0; m < group.size(); m++) {
+            IntList postings = group.get(m).postings;
+            for(int i = 0; i < postings.size; i++)
+                pairs[n++] = ((long) postings.items[i] << 32) | m;
+        }
+        Arrays.sort(pairs);
+
+        Candidates candidates = new Candidates(n);
+        for(int i = 0; i < n; i++) {
+            int id = (int) (pairs[i] >>> 32);
+            double score = group.get((int) pairs[i]).score;
+            if(candidates.size > 0 && candidates.ids[candidates.size - 1] == id)
+                candidates.scores[candidates.size - 1] = Math.max(candidates.scores[candidates.size - 1], score);
+            else
+                candidates.add(id, score);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the k candidates with the highest scores, ties broken by the order they were added.
+     */
+    private List<Course> top(Candidates candidates, int k) {
+        if(k <= 0)
+            return new ArrayList<>();
+
+        PriorityQueue<Integer> best = new PriorityQueue<>((a, b) ->
+                candidates.scores[a] == candidates.scores[b] ? b - a : Double.compare(candidates.scores[a], candidates.scores[b]));
+        for(int i = 0; i < candidates.size; i++) {
+            if(best.size() == k) {
+                int worst = best.peek();
+                if(candidates.scores[i] <= candidates.scores[worst])
+                    continue;
+                best.poll();
+            }
+            best.offer(i);
+        }
+
+        Course[] results = new Course[best.size()];
+        for(int i = results.length - 1; i >= 0; i--)
+            results[i] = documents.get(candidates.ids[best.poll()]);
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /**
+     * Returns the edit distance of two words, or max + 1 if it is greater than max.
+     */
+    private static int distance(String a, String b, int max) {
+        if(Math.abs(a.length() - b.length()) > max)
+            return max + 1;
+
+        int[] previous = new int[b.length() + 1], current = new int[b.length() + 1];
+        for(int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+
+        for(int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for(int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1], previous[j]) + 1, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(rowMin > max)
+                return max + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Returns the distinct trigrams of a string, each packed into a long.
+     */
+    private static long[] trigrams(String s) {
+        if(s.length() < 3)
+            return new long[0];
+
+        long[] grams = new long[s.length() - 2];
+        for(int i = 0; i < grams.length; i++)
+            grams[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        Arrays.sort(grams);
+
+        int distinct = 0;
+        for(int i = 0; i < grams.length; i++)
+            if(i == 0 || grams[i] != grams[i - 1])
+                grams[distinct++] = grams[i];
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /**
+     * Returns the lower-case name and instructor of a Course, separated by a line break.
+     */
+    private static String text(Course course) {
+        return (course.getName() + "\n" + course.getInstructor()).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the distinct lower-case words of the name and instructor of a Course.
+     */
+    private static String[] words(Course course) {
+        String[] words = split(text(course));
+        Arrays.sort(words);
+
+        int distinct = 0;
+        for(int i = 0; i < words.length; i++)
+            if(i == 0 || !words[i].equals(words[i - 1]))
+                words[distinct++] = words[i];
+        return Arrays.copyOf(words, distinct);
+    }
+
+    /**
+     * Splits text into lower-case words made of letters and digits.
+     */
+    private static String[] split(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(letter && start < 0)
+                start = i;
+            else if(!letter && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The StringPool class is a shared dictionary of the Strings that repeat across many Courses,
+ * such as departments and instructors. Every distinct value is stored once and given a
+ * number, so equal values held by different Courses are the same String object and can be
+ * compared by reference or by number. The pool also keeps statistics on how much heap the
+ * sharing saves. Pooled Strings are kept for the lifetime of the program, so the pool holds
+ * at most MAX_SIZE Strings, set with the system property "planner.stringPoolSize" (default
+ * 65536). Once it is full, new values are no longer pooled: intern() returns them as they
+ * are and lookup() and id() do not find them, while the values pooled before keep being
+ * shared. A value is therefore either always pooled or never pooled.
+ *
+ * @author Zhen Wei Liao
+ */
+public final class StringPool {
+    public static final int MAX_SIZE = Math.max(0, Integer.getInteger("planner.stringPoolSize", 1 << 16));
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final Object LOCK = new Object();
+    private static final LongAdder LOOKUPS = new LongAdder(), HITS = new LongAdder(), SAVED_BYTES = new LongAdder();
+    private static volatile String[] strings = new String[256];
+    private static int count;
+
+    private StringPool() {
+    }
+
+    /**
+     * Returns the pooled String equal to the given one, adding it to the pool if it is new
+     * and the pool is not full.
+     *
+     * @param value
+     *      The String to look up.
+     *
+     * @return
+     *      The pooled String equal to value, value itself if it is not pooled and the pool is
+     *      full, null if value is null.
+     */
+    public static String intern(String value) {
+        if(value == null)
+            return null;
+
+        LOOKUPS.increment();
+        Integer id = IDS.get(value);
+        if(id == null) {
+            synchronized(LOCK) {
+                id = IDS.get(value);
+                if(id == null) {
+                    if(count >= MAX_SIZE)
+                        return value;
+                    if(count == strings.length)
+                        strings = Arrays.copyOf(strings, count << 1);
+                    strings[count] = value;
+                    IDS.put(value, count++);
+                    return value;
+                }
+            }
+        }
+
+        HITS.increment();
+        String pooled = strings[id];
+        if(pooled != value)
+            SAVED_BYTES.add(heapSize(value));
+        return pooled;
+    }
+
+    /**
+     * Returns the pooled String equal to the given one without adding it to the pool.
+     *
+     * @param value
+     *      The String to look up.
+     *
+     * @return
+     *      The pooled String equal to value, null if value is null or not pooled.
+     */
+    public static String lookup(String value) {
+        Integer id = value == null ? null : IDS.get(value);
+        return id == null ? null : strings[id];
+    }
+
+    /**
+     * Returns the number of a pooled String.
+     *
+     * @param value
+     *      The String to look up.
+     *
+     * @return
+     *      The number of the String, -1 if value is null or not pooled.
+     */
+    public static int id(String value) {
+        Integer id = value == null ? null : IDS.get(value);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the pooled String with the given number.
+     *
+     * @param id
+     *      The number of the String, as returned by id().
+     *
+     * @return
+     *      The pooled String.
+     *
+     * @throws IllegalArgumentException
+     *      when no String has the given number.
+     */
+    public static String string(int id) throws IllegalArgumentException {
+        String[] current = strings;
+        if(id < 0 || id >= current.length || current[id] == null)
+            throw new IllegalArgumentException("Error: No pooled string has number " + id + ".");
+        return current[id];
+    }
+
+    /**
+     * Returns the number of distinct Strings in the pool.
+     *
+     * @return
+     *      The size of the pool.
+     */
+    public static int size() {
+        return IDS.size();
+    }
+
+    /**
+     * Returns whether the pool has reached MAX_SIZE and no longer adds new values.
+     *
+     * @return
+     *      True if the pool is full, false otherwise.
+     */
+    public static boolean isFull() {
+        return size() >= MAX_SIZE;
+    }
+
+    /**
+     * Returns a report of the pool: its size, the number of lookups that found an existing
+     * String, and an estimate of the heap saved by sharing those Strings instead of keeping
+     * a copy for each of them. A lookup passing the pooled String itself saves nothing.
+     *
+     * @return
+     *      A one-line report of the pool statistics.
+     */
+    public static String report() {
+        return "String pool: " + size() + " of at most " + MAX_SIZE + " distinct strings, " + HITS.sum() + " of " + LOOKUPS.sum()
+                + " lookups shared, about " + SAVED_BYTES.sum() / 1024 + " KiB of heap saved.";
+    }
+
+    /**
+     * Estimates the heap used by a String of its own: the object header and fields, plus a
+     * byte array holding one byte per character if all of them are Latin-1 and two otherwise.
+     */
+    private static long heapSize(String value) {
+        int bytesPerChar = 1;
+        for(int i = 0; i < value.length() && bytesPerChar == 1; i++)
+            if(value.charAt(i) > 0xFF)
+                bytesPerChar = 2;
+
+        long array = 16 + (long) value.length() * bytesPerChar;
+        return 24 + ((array + 7) & ~7L);
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+
+/**
+ * The TableRenderer class writes the table of Courses shown by a Planner straight into an
+ * Appendable such as a StringBuilder or a Writer. Columns are padded with precomputed widths,
+ * so no Formatter or intermediate String is created per row. The output matches the layout
+ * of the "%-5d%-25s%-12s%-11d%-4s%-30s" row format character for character.
+ *
+ * @author Zhen Wei Liao
+ */
+final class TableRenderer {
+    static final String HEADER = String.format("%-5s%-25s%-12s%-6s%-9s%-30s", "No.",
+            "Course Name", "Department", "Code", "Section", "Instructor") + "\n"
+            + "-".repeat(82) + "\n";
+    static final int ROW_LENGTH = 5 + 25 + 12 + 11 + 4 + 30 + 1;
+
+    private static final int POSITION_WIDTH = 5, NAME_WIDTH = 25, DEPARTMENT_WIDTH = 12,
+            CODE_WIDTH = 11, SECTION_WIDTH = 4, INSTRUCTOR_WIDTH = 30;
+    private static final String SPACES = " ".repeat(32);
+
+    private TableRenderer() {
+    }
+
+    /**
+     * Writes the header of the table.
+     *
+     * @param out
+     *      The destination of the header.
+     *
+     * @throws IOException
+     *      when the destination fails to accept the characters.
+     */
+    static void header(Appendable out) throws IOException {
+        out.append(HEADER);
+    }
+
+    /**
+     * Writes a row of the table that contains information of a specific Course.
+     *
+     * @param out
+     *      The destination of the row.
+     *
+     * @param course
+     *      The Course shown in the row.
+     *
+     * @param position
+     *      The preference number shown in the row.
+     *
+     * @throws IOException
+     *      when the destination fails to accept the characters.
+     */
+    static void row(Appendable out, Course course, int position) throws IOException {
+        appendInt(out, position, POSITION_WIDTH);
+        appendString(out, course.getName(), NAME_WIDTH);
+        appendString(out, course.getDepartment(), DEPARTMENT_WIDTH);
+        appendInt(out, course.getCode(), CODE_WIDTH);
+
+        int section = course.getSection();
+        if(section < 10) {
+            out.append('0');
+            appendInt(out, section, SECTION_WIDTH - 1);
+        } else
+            appendInt(out, section, SECTION_WIDTH);
+
+        appendString(out, course.getInstructor(), INSTRUCTOR_WIDTH);
+        out.append('\n');
+    }
+
+    /**
+     * Writes a String left-justified in a column of the given width. Like the "%s"
+     * conversion, a null String is written as "null" and longer Strings are not cut.
+     */
+    private static void appendString(Appendable out, String value, int width) throws IOException {
+        if(value == null)
+            value = "null";
+        out.append(value);
+        pad(out, width - value.length());
+    }
+
+    /**
+     * Writes an int left-justified in a column of the given width.
+     */
+    private static void appendInt(Appendable out, int value, int width) throws IOException {
+        if(out instanceof StringBuilder) {
+            StringBuilder builder = (StringBuilder) out;
+            int start = builder.length();
+            builder.append(value);
+            pad(out, width - (builder.length() - start));
+            return;
+        }
+
+        long remaining = value;
+        int length = 1;
+        if(remaining < 0) {
+            out.append('-');
+            remaining = -remaining;
+            length++;
+        }
+
+        long divisor = 1;
+        while(divisor * 10 <= remaining) {
+            divisor *= 10;
+            length++;
+        }
+        for(; divisor > 0; divisor /= 10)
+            out.append((char) ('0' + remaining / divisor % 10));
+
+        pad(out, width - length);
+    }
+
+    /**
+     * Writes the given number of spaces.
+     */
+    private static void pad(Appendable out, int count) throws IOException {
+        for(; count > 0; count -= SPACES.length())
+            out.append(SPACES, 0, Math.min(count, SPACES.length()));
+    }
+}